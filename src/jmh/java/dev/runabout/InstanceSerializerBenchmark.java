@@ -0,0 +1,122 @@
+package dev.runabout;
+
+import dev.runabout.annotations.RunaboutEnabled;
+import dev.runabout.annotations.RunaboutParameter;
+import dev.runabout.annotations.ToRunabout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the core reflection path the RunaboutService used to take for instance serializers against the
+ * method handles compiled into a {@link SerializationPlan}.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InstanceSerializerBenchmark {
+
+    private EnabledValue enabledValue;
+    private ToRunaboutValue toRunaboutValue;
+    private RunaboutService service;
+
+    private List<Field> fields;
+    private List<MethodHandle> getters;
+    private Method method;
+    private MethodHandle methodHandle;
+
+    @Setup
+    public void setup() {
+        enabledValue = new EnabledValue(7, "name", 42L);
+        toRunaboutValue = new ToRunaboutValue("value");
+        service = new RunaboutServiceBuilder("benchmark")
+                .setRunaboutApi(scenario -> {})
+                .build();
+
+        final SerializationPlan enabledPlan = SerializationPlan.forClass(EnabledValue.class);
+        fields = enabledPlan.getFields();
+        getters = enabledPlan.getGetters();
+
+        final SerializationPlan toRunaboutPlan = SerializationPlan.forClass(ToRunaboutValue.class);
+        method = toRunaboutPlan.getMethod();
+        methodHandle = toRunaboutPlan.getMethodHandle();
+    }
+
+    @Benchmark
+    public void reflectiveFieldAccess(final Blackhole blackhole) throws IllegalAccessException {
+        for (final Field field : fields) {
+            blackhole.consume(field.get(enabledValue));
+        }
+    }
+
+    @Benchmark
+    public void methodHandleFieldAccess(final Blackhole blackhole) throws Throwable {
+        for (final MethodHandle getter : getters) {
+            blackhole.consume((Object) getter.invokeExact((Object) enabledValue));
+        }
+    }
+
+    @Benchmark
+    public Object reflectiveToRunabout() throws ReflectiveOperationException {
+        return method.invoke(toRunaboutValue);
+    }
+
+    @Benchmark
+    public RunaboutInput methodHandleToRunabout() throws Throwable {
+        return (RunaboutInput) methodHandle.invokeExact((Object) toRunaboutValue);
+    }
+
+    @Benchmark
+    public RunaboutInput serializeRunaboutEnabled() {
+        return service.serialize(enabledValue);
+    }
+
+    @Benchmark
+    public RunaboutInput serializeToRunabout() {
+        return service.serialize(toRunaboutValue);
+    }
+
+    public static class EnabledValue {
+
+        private final int number;
+        private final String name;
+        private final long id;
+
+        @RunaboutEnabled
+        public EnabledValue(@RunaboutParameter("number") int number,
+                            @RunaboutParameter("name") String name,
+                            @RunaboutParameter("id") long id) {
+            this.number = number;
+            this.name = name;
+            this.id = id;
+        }
+    }
+
+    public static class ToRunaboutValue {
+
+        private final String value;
+
+        public ToRunaboutValue(String value) {
+            this.value = value;
+        }
+
+        @ToRunabout
+        private RunaboutInput toRunabout() {
+            return RunaboutInput.of("new ToRunaboutValue(\"" + value + "\")",
+                    Set.of(ToRunaboutValue.class.getCanonicalName()));
+        }
+    }
+}
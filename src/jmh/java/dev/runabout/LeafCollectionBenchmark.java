@@ -0,0 +1,58 @@
+package dev.runabout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing large collections of boxed primitives and strings, where each element used to go through
+ * the full serializer dispatch.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LeafCollectionBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private List<Long> longs;
+    private Map<String, Integer> counts;
+    private RunaboutService service;
+
+    @Setup
+    public void setup() {
+        service = new RunaboutServiceBuilder("benchmark")
+                .setRunaboutApi(scenario -> {})
+                .build();
+
+        longs = new ArrayList<>();
+        counts = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            longs.add((long) i);
+            counts.put("key" + i, i);
+        }
+    }
+
+    @Benchmark
+    public String serializeLongList() {
+        return service.serialize(longs).getEval();
+    }
+
+    @Benchmark
+    public String serializeStringIntegerMap() {
+        return service.serialize(counts).getEval();
+    }
+}
@@ -0,0 +1,56 @@
+package dev.runabout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing maps of lists nested to increasing depths, where concatenating nested evals copies each
+ * character once per level.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NestedCollectionBenchmark {
+
+    @Param({"2", "8", "32"})
+    private int depth;
+
+    private Object value;
+    private RunaboutService service;
+
+    @Setup
+    public void setup() {
+        service = new RunaboutServiceBuilder("benchmark")
+                .setRunaboutApi(scenario -> {})
+                .build();
+
+        Object nested = "leaf value";
+        for (int i = 0; i < depth; i++) {
+            final List<Object> list = new ArrayList<>();
+            list.add(nested);
+            list.add(i);
+            final Map<String, Object> map = new HashMap<>();
+            map.put("level" + i, list);
+            nested = map;
+        }
+        value = nested;
+    }
+
+    @Benchmark
+    public String serializeNested() {
+        return service.serialize(value).getEval();
+    }
+}
@@ -0,0 +1,59 @@
+package dev.runabout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures escaping strings for Java literals and JSON, against the three regex replacements the escaping used to
+ * run, for strings that need no escaping and strings with quotes, backslashes and newlines.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringEscapeBenchmark {
+
+    @Param({"plain", "escaped"})
+    private String kind;
+
+    @Param({"32", "4096"})
+    private int length;
+
+    private String value;
+
+    @Setup
+    public void setup() {
+        final String unit = "plain".equals(kind) ? "a plain value, " : "a \"quoted\\\" value\n";
+        final StringBuilder builder = new StringBuilder(length + unit.length());
+        while (builder.length() < length) {
+            builder.append(unit);
+        }
+        value = builder.substring(0, length);
+    }
+
+    @Benchmark
+    public String escapeJava() {
+        return StringEscaper.escapeJava(value);
+    }
+
+    @Benchmark
+    public String escapeJson() {
+        return StringEscaper.escapeJson(value);
+    }
+
+    @Benchmark
+    public String regexBaseline() {
+        return value
+                .replaceAll("(?<!\\\\)\\\\\\\\\\\\\\\"", "\\\\\\\\\\\\\\\\\\\\\\\\\\\\\"")
+                .replaceAll("(?<!\\\\)\\\\\\\"", "\\\\\\\\\\\\\"")
+                .replaceAll("(?<!\\\\)\\\"", "\\\\\"");
+    }
+}
@@ -0,0 +1,106 @@
+package dev.runabout;
+
+/**
+ * Circuit breaker for the ingest endpoint. After enough consecutive failures the breaker opens, and no request is
+ * sent until the open duration has passed. Then a single trial request is let through: if it succeeds the breaker
+ * closes, and if it fails the breaker opens again. A trial that never completes is replaced after the open duration.
+ * <p>
+ * Drainers check the breaker just before sending, and wait while it is open, so an unavailable endpoint backs
+ * scenarios up in the queue instead of failing request after request. Retries check it too, and are held until it
+ * admits them. A Retry-After from the endpoint holds the breaker open until the time it asks for.
+ */
+final class CircuitBreaker {
+
+    private static final long TRIAL_POLL_NANOS = 10_000_000;
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    // Guarded by this.
+    private State state = State.CLOSED;
+    private int failures;
+    private long changedAt;
+
+    /**
+     * @param failureThreshold The number of consecutive failures that opens the breaker, at least 1.
+     * @param openNanos        How long the breaker stays open before a trial request.
+     */
+    CircuitBreaker(final int failureThreshold, final long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Checks whether a request can be sent now. When the open duration has passed, the caller is given the trial
+     * request and must send it.
+     *
+     * @return 0 if a request can be sent, otherwise how long to wait before asking again in nanoseconds.
+     */
+    synchronized long tryAcquire() {
+        if (state == State.CLOSED) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        final long remaining = changedAt + openNanos - now;
+        if (state == State.OPEN && remaining > 0) {
+            return remaining;
+        }
+        if (state == State.HALF_OPEN && remaining > 0) {
+            // Wait for the trial, polling, since it can close the breaker at any time.
+            return Math.min(remaining, TRIAL_POLL_NANOS);
+        }
+        state = State.HALF_OPEN;
+        changedAt = now;
+        return 0;
+    }
+
+    /**
+     * Records a request that reached the endpoint, closing the breaker.
+     */
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * Records a failed request, opening the breaker if it was a trial or the failure threshold is reached.
+     */
+    synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            final long now = System.nanoTime();
+            // Never cut short a longer hold asked for by the endpoint.
+            if (state != State.OPEN || now - changedAt > 0) {
+                changedAt = now;
+            }
+            state = State.OPEN;
+        }
+    }
+
+    /**
+     * Opens the breaker for at least the given time, without counting a failure. Used when the endpoint asks clients
+     * to wait with a Retry-After header.
+     *
+     * @param nanos How long to hold requests in nanoseconds.
+     */
+    synchronized void holdFor(final long nanos) {
+        final long now = System.nanoTime();
+        if (state != State.OPEN || changedAt + openNanos - now < nanos) {
+            state = State.OPEN;
+            changedAt = now + nanos - openNanos;
+        }
+    }
+
+    /**
+     * @return True if the breaker is closed.
+     */
+    synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+}
@@ -0,0 +1,82 @@
+package dev.runabout;
+
+import java.util.Set;
+
+/**
+ * RunaboutInput made of text and nested inputs, built by {@link RunaboutInputBuilder}. Nested inputs are kept by
+ * reference and the eval String is only written when it is first needed, in a single pass into one StringBuilder
+ * sized to the exact length of the eval. Nested inputs write straight into the same StringBuilder, so each
+ * character is copied once no matter how deeply it is nested.
+ */
+final class CompositeInput implements RunaboutInput {
+
+    // Each part is either a String or a CompositeInput.
+    private final Object[] parts;
+    private final Set<String> dependencies;
+    private final int length;
+
+    private String eval;
+
+    CompositeInput(final Object[] parts, final Set<String> dependencies, final int length) {
+        this.parts = parts;
+        this.dependencies = dependencies;
+        this.length = length;
+    }
+
+    @Override
+    public String getEval() {
+        if (eval == null) {
+            final StringBuilder sink = new StringBuilder(length);
+            write(sink);
+            eval = sink.toString();
+        }
+        return eval;
+    }
+
+    @Override
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Appends the eval String to a sink without building it as a separate String first.
+     *
+     * @param sink The StringBuilder to append to.
+     */
+    void write(final StringBuilder sink) {
+        if (eval != null) {
+            sink.append(eval);
+            return;
+        }
+        for (final Object part : parts) {
+            if (part instanceof CompositeInput) {
+                ((CompositeInput) part).write(sink);
+            } else {
+                sink.append((String) part);
+            }
+        }
+    }
+
+    /**
+     * Gets the length of the eval String of an input, without writing it if it is a CompositeInput.
+     *
+     * @param input The input to measure.
+     * @return The length of the eval, or 0 if the input or its eval is null.
+     */
+    static int evalLength(final RunaboutInput input) {
+        if (input instanceof CompositeInput) {
+            return ((CompositeInput) input).length;
+        }
+        return input == null || input.getEval() == null ? 0 : input.getEval().length();
+    }
+
+    /**
+     * Checks whether an input has a non-empty eval String, without writing it if it is a CompositeInput.
+     *
+     * @param input The input to check.
+     * @return True if the input has an eval.
+     */
+    static boolean hasEval(final RunaboutInput input) {
+        return evalLength(input) > 0;
+    }
+}
@@ -1,32 +1,135 @@
 package dev.runabout;
 
+import dev.runabout.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
-
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serializer for common JDK types, used when an object has no instance serializer and the custom serializer returns
+ * null. Out of the box it serializes:
+ * <ul>
+ *     <li>Strings, boxed primitives, enums and arrays.</li>
+ *     <li>Maps, lists and sets, as HashMap, ArrayList and HashSet unless they are a LinkedHashMap, TreeMap,
+ *     LinkedList, ArrayDeque, LinkedHashSet, TreeSet or EnumSet.</li>
+ *     <li>Optional, BigDecimal, BigInteger, UUID, atomic values, ZoneId and the java.time value types.</li>
+ * </ul>
+ * Subclasses and implementations of these types use the serializer of their most specific supertype.
+ */
 class DefaultSerializer {
 
-    private static final Map<Class<?>, TypedSerializer<?>> serializers = Map.ofEntries(
-            Map.entry(String.class, (TypedSerializer<String>) DefaultSerializer::stringSerializer),
-            Map.entry(Boolean.class, (TypedSerializer<Boolean>) DefaultSerializer::primitiveSerializer),
-            Map.entry(Integer.class,(TypedSerializer<Integer>) DefaultSerializer::primitiveSerializer),
-            Map.entry(Long.class,(TypedSerializer<Long>) DefaultSerializer::primitiveSerializer),
-            Map.entry(Float.class,(TypedSerializer<Float>) DefaultSerializer::primitiveSerializer),
-            Map.entry(Double.class,(TypedSerializer<Double>) DefaultSerializer::primitiveSerializer),
-            Map.entry(Byte.class,(TypedSerializer<Byte>) DefaultSerializer::primitiveSerializer),
-            Map.entry(Short.class,(TypedSerializer<Short>) DefaultSerializer::primitiveSerializer),
-            Map.entry(Character.class, (TypedSerializer<Character>) DefaultSerializer::charSerializer)
-    );
-
-    private static final RunaboutInput NULL_INPUT = RunaboutInput.of("null", Collections.emptySet());
-    private static final RunaboutInput EMPTY_INPUT = RunaboutInput.of("", Collections.emptySet());
+    //
+    // Registry of built-in serializers by type. A class is served by the serializer registered for its most specific
+    // supertype, resolved once per class by the TypeRegistry.
+    //
+    private static final Map<Class<?>, Registration> registrations = new LinkedHashMap<>();
+
+    static {
+        registerLeaf(String.class, DefaultSerializer::stringSerializer);
+        registerLeaf(Boolean.class, value -> primitiveSerializer("(boolean) ", value));
+        registerLeaf(Integer.class, value -> primitiveSerializer("(int) ", value));
+        registerLeaf(Long.class, value -> primitiveSerializer("(long) ", value));
+        registerLeaf(Float.class, DefaultSerializer::floatSerializer);
+        registerLeaf(Double.class, DefaultSerializer::doubleSerializer);
+        registerLeaf(Byte.class, value -> primitiveSerializer("(byte) ", value));
+        registerLeaf(Short.class, value -> primitiveSerializer("(short) ", value));
+        registerLeaf(Character.class, DefaultSerializer::charSerializer);
+        registerLeaf(Enum.class, DefaultSerializer::enumSerializer);
+
+        registerLeaf(BigDecimal.class, value -> constructorSerializer(BigDecimal.class, value.toString()));
+        registerLeaf(BigInteger.class, value -> constructorSerializer(BigInteger.class, value.toString()));
+        registerLeaf(UUID.class, value -> factorySerializer(UUID.class, "fromString", value.toString()));
+        registerLeaf(AtomicLong.class, value -> RunaboutInput.of("new AtomicLong(" + value.get() + "L)",
+                DependencySet.of(AtomicLong.class)));
+        registerLeaf(AtomicInteger.class, value -> RunaboutInput.of("new AtomicInteger(" + value.get() + ")",
+                DependencySet.of(AtomicInteger.class)));
+        registerLeaf(AtomicBoolean.class, value -> RunaboutInput.of("new AtomicBoolean(" + value.get() + ")",
+                DependencySet.of(AtomicBoolean.class)));
+
+        // Each java.time type prints in the format its parse method reads.
+        for (final Class<?> type : List.of(Instant.class, LocalDate.class, LocalTime.class, LocalDateTime.class,
+                OffsetDateTime.class, OffsetTime.class, ZonedDateTime.class, Duration.class, Period.class,
+                Year.class, YearMonth.class, MonthDay.class)) {
+            registerLeaf(type, value -> factorySerializer(type, "parse", value.toString()));
+        }
+        registerLeaf(ZoneId.class, value -> factorySerializer(ZoneId.class, "of", value.getId()));
+
+        registerRecursive(Optional.class, DefaultSerializer::optionalSerializer);
+        registerLeaf(EnumSet.class, DefaultSerializer::enumSetSerializer);
+
+        registerRecursive(Map.class, (map, recursive, context) ->
+                mapSerializer(map, HashMap.class, recursive, context));
+        registerRecursive(LinkedHashMap.class, (map, recursive, context) ->
+                mapSerializer(map, LinkedHashMap.class, recursive, context));
+        registerRecursive(SortedMap.class, (map, recursive, context) ->
+                mapSerializer(map, map.comparator() == null ? TreeMap.class : LinkedHashMap.class, recursive,
+                        context));
+
+        registerRecursive(List.class, (list, recursive, context) ->
+                collectionSerializer(list, ArrayList.class, recursive, context));
+        registerRecursive(LinkedList.class, (list, recursive, context) ->
+                collectionSerializer(list, LinkedList.class, recursive, context));
+        registerRecursive(ArrayDeque.class, (deque, recursive, context) ->
+                collectionSerializer(deque, ArrayDeque.class, recursive, context));
+        registerRecursive(Set.class, (set, recursive, context) ->
+                collectionSerializer(set, HashSet.class, recursive, context));
+        registerRecursive(LinkedHashSet.class, (set, recursive, context) ->
+                collectionSerializer(set, LinkedHashSet.class, recursive, context));
+        registerRecursive(SortedSet.class, (set, recursive, context) ->
+                collectionSerializer(set, set.comparator() == null ? TreeSet.class : LinkedHashSet.class, recursive,
+                        context));
+    }
+
+    private static final Registration NONE = new Registration(null, false, null);
+    private static final Registration OBJECT_ARRAY = new Registration((array, recursive, context) ->
+            objectArraySerializer((Object[]) array, recursive, context), true, null);
+    private static final Registration PRIMITIVE_ARRAY = new Registration((array, recursive, context) ->
+            primitiveArraySerializer(array, context), false, null);
+
+    private static final TypeRegistry<Registration> registry = new TypeRegistry<>(registrations);
+
+    private static final RunaboutInput NULL_INPUT = RunaboutInput.of("null", DependencySet.EMPTY);
+    private static final RunaboutInput EMPTY_INPUT = RunaboutInput.of("", DependencySet.EMPTY);
+    private static final RunaboutInput TRUNCATED_INPUT = RunaboutInput.of("null /* truncated by Runabout */",
+            DependencySet.EMPTY);
+    private static final RunaboutInput CYCLE_INPUT = RunaboutInput.of("null /* cycle detected by Runabout */",
+            DependencySet.EMPTY);
 
     private static final DefaultSerializer INSTANCE = new DefaultSerializer();
 
@@ -42,43 +145,61 @@ class DefaultSerializer {
      * Main entrypoint for serializing objects.
      */
     public <T> RunaboutInput toRunaboutGenericRecursive(final T object, final RunaboutSerializer recursiveSerializer) {
+        // Each call is its own pass, so concurrent callers never share budgets or tracked objects.
+        return toRunaboutGenericRecursive(object, recursiveSerializer, new SerializationContext());
+    }
+
+    /**
+     * Serializes objects, applying the limits of the serialization pass.
+     */
+    <T> RunaboutInput toRunaboutGenericRecursive(final T object, final RunaboutSerializer recursiveSerializer,
+                                                 final SerializationContext context) {
 
         if (object == null) {
             return NULL_INPUT;
         }
 
-        RunaboutInput input = null;
-
-        if (object instanceof Map<?,?>) {
-            input = mapSerializer((Map<?,?>) object, recursiveSerializer);
-        } else if (object instanceof Collection<?>) {
-            input = collectionSerializer((Collection<?>) object, recursiveSerializer);
+        final Registration registration = resolve(object.getClass());
+        if (registration == NONE) {
+            return EMPTY_INPUT;
         }
 
-        return Optional.ofNullable(input).orElseGet(() -> toRunaboutGeneric(object));
+        final RecursiveSerializer recursive = RecursiveSerializer.of(recursiveSerializer);
+        return Optional.ofNullable(registration.serializer.serialize(object, recursive, context))
+                .orElse(EMPTY_INPUT);
     }
 
-    //
-    // Suppress warnings for unchecked cast to TypedSerializer<T>. We know its safe based on composition of the map.
-    //
-    @SuppressWarnings("unchecked")
+    /**
+     * Serializes objects that don't contain other objects. Maps, collections, optionals and object arrays are
+     * serialized by {@link #toRunaboutGenericRecursive(Object, RunaboutSerializer)} instead.
+     */
     <T> RunaboutInput toRunaboutGeneric(final T object) {
 
         if (object == null) {
             return NULL_INPUT;
         }
 
-        RunaboutInput input = null;
-
-        if (object instanceof Enum<?>) {
-            input = enumSerializer((Enum<?>) object);
+        final Registration registration = resolve(object.getClass());
+        if (registration == NONE || registration.recursive) {
+            return EMPTY_INPUT;
         }
 
-        return Optional.ofNullable(input)
-                .orElseGet(() -> Optional.ofNullable(serializers.get(object.getClass()))
-                        .map(serializer -> ((TypedSerializer<T>) serializer).apply(object))
-                        .orElse(EMPTY_INPUT)
-                );
+        // Leaf serializers don't read a context, so only primitive arrays get one.
+        final RunaboutInput input = registration.leafSerializer != null
+                ? registration.leafSerializer.toRunaboutGeneric(object)
+                : registration.serializer.serialize(object, null, new SerializationContext());
+        return Optional.ofNullable(input).orElse(EMPTY_INPUT);
+    }
+
+    /**
+     * Gets the serializer for objects of exactly the given class, if they don't contain other objects.
+     *
+     * @param type The class of the objects.
+     * @return The serializer, or null if the class is not a leaf type.
+     */
+    @Nullable
+    static RunaboutSerializer getLeafSerializer(final Class<?> type) {
+        return resolve(type).leafSerializer;
     }
 
     static RunaboutInput getNullInput() {
@@ -89,110 +210,518 @@ class DefaultSerializer {
         return EMPTY_INPUT;
     }
 
-    private static RunaboutInput collectionSerializer(final Collection<?> collection,
-                                                      final RunaboutSerializer recursiveSerializer) {
+    /**
+     * Gets the input used in place of a value that was not serialized because a budget was hit.
+     */
+    static RunaboutInput getTruncatedInput() {
+        return TRUNCATED_INPUT;
+    }
+
+    /**
+     * Gets the input used in place of an object that refers back to itself.
+     */
+    static RunaboutInput getCycleInput() {
+        return CYCLE_INPUT;
+    }
 
-        RunaboutInput input = null;
+    private static Registration resolve(final Class<?> clazz) {
 
-        if (collection instanceof List<?>) {
-            input = listSerializer((List<?>) collection, recursiveSerializer);
-        } else if (collection instanceof Set<?>) {
-            input = setSerializer((Set<?>) collection, recursiveSerializer);
+        if (clazz.isArray()) {
+            return clazz.getComponentType().isPrimitive() ? PRIMITIVE_ARRAY : OBJECT_ARRAY;
         }
 
-        return input;
+        final Registration registration = registry.get(clazz);
+        return registration == null ? NONE : registration;
     }
 
-    private static RunaboutInput mapSerializer(final Map<?,?> map, final RunaboutSerializer recursiveSerializer) {
+    //
+    // Suppress warnings for the casts to BuiltInSerializer<Object>. Resolution only applies a serializer to
+    // instances of the type it was registered for.
+    //
+    @SuppressWarnings("unchecked")
+    private static <T> void registerLeaf(final Class<T> type, final LeafSerializer<? super T> serializer) {
+        final LeafSerializer<Object> leaf = (LeafSerializer<Object>) serializer;
+        registrations.put(type, new Registration((object, recursive, context) -> leaf.serialize(object), false,
+                leaf::serialize));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void registerRecursive(final Class<T> type, final BuiltInSerializer<? super T> serializer) {
+        registrations.put(type, new Registration((BuiltInSerializer<Object>) serializer, true, null));
+    }
+
+    private static RunaboutInput mapSerializer(final Map<?, ?> map, final Class<?> implementation,
+                                               final RecursiveSerializer recursiveSerializer,
+                                               final SerializationContext context) {
+
+        final String name = implementation.getSimpleName();
 
         // Short circuit for empty map
         if (map.isEmpty()) {
-            return RunaboutInput.of("new HashMap<>()", Set.of(HashMap.class.getCanonicalName()));
+            return RunaboutInput.of("new " + name + "<>()", DependencySet.of(implementation));
         }
 
-        final StringBuilder builder = new StringBuilder();
-        final Set<String> allDependencies = new HashSet<>();
-        allDependencies.add(HashMap.class.getCanonicalName());
+        final RunaboutInputBuilder builder = new RunaboutInputBuilder()
+                .append("new " + name + "<>() {{ ")
+                .addDependencies(DependencySet.of(implementation));
+
+        // Large maps may be serialized in parallel, as alternating keys and values.
+        final int size = Math.min(map.size(), context.getLimits().getMaxElements());
+        final RunaboutInput[] inputs = recursiveSerializer.serializeParallel(size, () -> entryElements(map, size));
+        if (inputs != null) {
+            int count = 0;
+            for (; count < size && inputs[2 * count] != null && inputs[2 * count + 1] != null; count++) {
+                if (!CompositeInput.hasEval(inputs[2 * count]) || !CompositeInput.hasEval(inputs[2 * count + 1])) {
+                    return EMPTY_INPUT;
+                }
+                builder.append("put(").append(inputs[2 * count]).append(", ").append(inputs[2 * count + 1])
+                        .append("); ");
+            }
+            if (count < map.size()) {
+                context.markTruncated();
+                builder.append(truncatedElements(map.size() - count));
+            }
+            return builder.append("}}").build();
+        }
 
+        final ElementSerializer keys = new ElementSerializer(recursiveSerializer);
+        final ElementSerializer values = new ElementSerializer(recursiveSerializer);
+        int count = 0;
         for (Map.Entry<?, ?> entry : map.entrySet()) {
-            final RunaboutInput serialKey = recursiveSerializer.toRunaboutGeneric(entry.getKey());
-            final RunaboutInput serialValue = recursiveSerializer.toRunaboutGeneric(entry.getValue());
+            if (count == context.getLimits().getMaxElements() || context.isExhausted()) {
+                context.markTruncated();
+                builder.append(truncatedElements(map.size() - count));
+                break;
+            }
+            count++;
+            final RunaboutInput serialKey = keys.serialize(entry.getKey());
+            final RunaboutInput serialValue = values.serialize(entry.getValue());
             // If either key/value cannot be serialized, return empty input.
-            if (serialKey == null || serialKey.getEval() == null || serialKey.getEval().isEmpty() ||
-                    serialValue == null || serialValue.getEval() == null || serialValue.getEval().isEmpty()) {
+            if (!CompositeInput.hasEval(serialKey) || !CompositeInput.hasEval(serialValue)) {
                 return EMPTY_INPUT;
             }
-            final String entryString = "put(" + serialKey.getEval() + ", " + serialValue.getEval() + "); ";
-            builder.append(entryString);
-            allDependencies.addAll(serialKey.getDependencies());
-            allDependencies.addAll(serialValue.getDependencies());
+            builder.append("put(").append(serialKey).append(", ").append(serialValue).append("); ");
         }
 
-        return RunaboutInput.of("new HashMap<>() {{ " + builder + "}}", allDependencies);
+        return builder.append("}}").build();
     }
 
-    private static RunaboutInput listSerializer(final List<?> list, final RunaboutSerializer recursiveSerializer) {
+    private static RunaboutInput collectionSerializer(final Collection<?> collection, final Class<?> implementation,
+                                                      final RecursiveSerializer recursiveSerializer,
+                                                      final SerializationContext context) {
+
+        final String name = implementation.getSimpleName();
 
-        if (list.isEmpty()) {
-            return RunaboutInput.of("new ArrayList<>()", Set.of(ArrayList.class.getCanonicalName()));
+        if (collection.isEmpty()) {
+            return RunaboutInput.of("new " + name + "<>()", DependencySet.of(implementation));
         }
 
-        final StringBuilder builder = new StringBuilder();
-        final Set<String> allDependencies = new HashSet<>();
-        allDependencies.add(ArrayList.class.getCanonicalName());
+        final RunaboutInputBuilder builder = new RunaboutInputBuilder()
+                .append("new " + name + "<>() {{ ")
+                .addDependencies(DependencySet.of(implementation));
+
+        final int size = Math.min(collection.size(), context.getLimits().getMaxElements());
+        final RunaboutInput[] inputs = recursiveSerializer.serializeParallel(size,
+                () -> collectionElements(collection, size));
+        if (inputs != null) {
+            int count = 0;
+            for (; count < size && inputs[count] != null; count++) {
+                if (!CompositeInput.hasEval(inputs[count])) {
+                    return EMPTY_INPUT;
+                }
+                builder.append("add(").append(inputs[count]).append("); ");
+            }
+            if (count < collection.size()) {
+                context.markTruncated();
+                builder.append(truncatedElements(collection.size() - count));
+            }
+            return builder.append("}}").build();
+        }
 
-        for (Object item : list) {
-            final RunaboutInput serialItem = recursiveSerializer.toRunaboutGeneric(item);
-            if (serialItem == null || serialItem.getEval() == null || serialItem.getEval().isEmpty()) {
+        final ElementSerializer elements = new ElementSerializer(recursiveSerializer);
+        int count = 0;
+        for (Object item : collection) {
+            if (count == context.getLimits().getMaxElements() || context.isExhausted()) {
+                context.markTruncated();
+                builder.append(truncatedElements(collection.size() - count));
+                break;
+            }
+            count++;
+            final RunaboutInput serialItem = elements.serialize(item);
+            if (!CompositeInput.hasEval(serialItem)) {
                 return EMPTY_INPUT;
             }
-            builder.append("add(").append(serialItem.getEval()).append("); ");
-            allDependencies.addAll(serialItem.getDependencies());
+            builder.append("add(").append(serialItem).append("); ");
+        }
+
+        return builder.append("}}").build();
+    }
+
+    private static Object[] entryElements(final Map<?, ?> map, final int size) {
+        final Object[] elements = new Object[size * 2];
+        int index = 0;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            if (index == elements.length) {
+                break;
+            }
+            elements[index++] = entry.getKey();
+            elements[index++] = entry.getValue();
+        }
+        return elements;
+    }
+
+    private static Object[] collectionElements(final Collection<?> collection, final int size) {
+        final Object[] elements = new Object[size];
+        int index = 0;
+        for (final Object element : collection) {
+            if (index == size) {
+                break;
+            }
+            elements[index++] = element;
         }
+        return elements;
+    }
 
-        return RunaboutInput.of("new ArrayList<>() {{ " + builder + "}}", allDependencies);
+    private static RunaboutInput optionalSerializer(final Optional<?> optional,
+                                                    final RecursiveSerializer recursiveSerializer,
+                                                    final SerializationContext context) {
+
+        if (optional.isEmpty()) {
+            return RunaboutInput.of("Optional.empty()", DependencySet.of(Optional.class));
+        }
+
+        final RunaboutInput value = recursiveSerializer.toRunaboutGeneric(optional.get());
+        if (!CompositeInput.hasEval(value)) {
+            return EMPTY_INPUT;
+        }
+
+        return new RunaboutInputBuilder()
+                .append("Optional.of(")
+                .append(value)
+                .append(")")
+                .addDependencies(DependencySet.of(Optional.class))
+                .build();
     }
 
-    private static RunaboutInput setSerializer(final Set<?> set, final RunaboutSerializer recursiveSerializer) {
+    //
+    // Suppress warnings for the raw EnumSet. Every EnumSet holds constants of a single enum.
+    //
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RunaboutInput enumSetSerializer(final EnumSet set) {
 
+        // An empty set doesn't name its enum, but its complement holds every constant of it.
         if (set.isEmpty()) {
-            return RunaboutInput.of("new HashSet<>()", Set.of(HashSet.class.getCanonicalName()));
+            final EnumSet complement = EnumSet.complementOf(set);
+            if (complement.isEmpty()) {
+                return EMPTY_INPUT;
+            }
+            final Class<?> type = ((Enum<?>) complement.iterator().next()).getDeclaringClass();
+            return RunaboutInput.of("EnumSet.noneOf(" + type.getCanonicalName() + ".class)",
+                    DependencySet.union(DependencySet.of(EnumSet.class), DependencySet.of(type)));
+        }
+
+        final RunaboutInputBuilder builder = new RunaboutInputBuilder()
+                .append("EnumSet.of(")
+                .addDependencies(DependencySet.of(EnumSet.class));
+        int count = 0;
+        for (final Object constant : set) {
+            builder.append(count++ == 0 ? "" : ", ").append(enumSerializer((Enum<?>) constant));
+        }
+        return builder.append(")").build();
+    }
+
+    private static RunaboutInput constructorSerializer(final Class<?> type, final String argument) {
+        return RunaboutInput.of("new " + type.getSimpleName() + "(\"" + argument + "\")", DependencySet.of(type));
+    }
+
+    private static RunaboutInput factorySerializer(final Class<?> type, final String method, final String argument) {
+        return RunaboutInput.of(type.getSimpleName() + "." + method + "(\"" + argument + "\")", DependencySet.of(type));
+    }
+
+    private static RunaboutInput objectArraySerializer(final Object[] array,
+                                                       final RecursiveSerializer recursiveSerializer,
+                                                       final SerializationContext context) {
+
+        //
+        // Name the array by its innermost component type, so nested arrays like String[][] keep every dimension.
+        //
+        Class<?> component = array.getClass().getComponentType();
+        final StringBuilder dimensions = new StringBuilder("[]");
+        while (component.isArray()) {
+            component = component.getComponentType();
+            dimensions.append("[]");
+        }
+        if (component.getCanonicalName() == null) {
+            component = Object.class;
         }
 
-        final StringBuilder builder = new StringBuilder();
-        final Set<String> allDependencies = new HashSet<>();
-        allDependencies.add(HashSet.class.getCanonicalName());
+        final RunaboutInputBuilder builder = new RunaboutInputBuilder()
+                .append("new " + component.getSimpleName() + dimensions + "{");
+        if (!component.isPrimitive()) {
+            builder.addDependencies(DependencySet.of(component));
+        }
 
-        for (Object item : set) {
-            final RunaboutInput serialItem = recursiveSerializer.toRunaboutGeneric(item);
-            if (serialItem == null || serialItem.getEval() == null || serialItem.getEval().isEmpty()) {
+        final ElementSerializer elements = new ElementSerializer(recursiveSerializer);
+        int count = 0;
+        for (Object item : array) {
+            if (count == context.getLimits().getMaxElements() || context.isExhausted()) {
+                context.markTruncated();
+                builder.append(truncatedArrayElements(array.length - count, count));
+                break;
+            }
+            final RunaboutInput serialItem = elements.serialize(item);
+            if (!CompositeInput.hasEval(serialItem)) {
                 return EMPTY_INPUT;
             }
-            builder.append("add(").append(serialItem.getEval()).append("); ");
-            allDependencies.addAll(serialItem.getDependencies());
+            builder.append(count == 0 ? "" : ", ").append(serialItem);
+            count++;
         }
 
-        return RunaboutInput.of("new HashSet<>() {{ " + builder + "}}", allDependencies);
+        return builder.append("}").build();
+    }
+
+    //
+    // Each primitive type gets its own loop over the typed array, so elements are appended without boxing.
+    // The loops stop at the max elements, once the eval would exceed the remaining eval length budget, or
+    // when the deadline is found to have passed, which is checked every few thousand elements.
+    //
+    private static RunaboutInput primitiveArraySerializer(final Object array, final SerializationContext context) {
+
+        if (array instanceof byte[]) {
+            return byteArraySerializer((byte[]) array, context);
+        }
+
+        final String type = array.getClass().getComponentType().getName();
+        final StringBuilder builder = new StringBuilder("new ").append(type).append("[]{");
+        final int start = builder.length();
+        final long remaining = context.getRemainingEvalLength();
+        final int maxElements = context.getLimits().getMaxElements();
+
+        int length = 0;
+        int count = 0;
+        if (array instanceof int[]) {
+            final int[] values = (int[]) array;
+            length = values.length;
+            for (; count < length && canAppend(builder, start, count, maxElements, remaining, context); count++) {
+                separator(builder, count).append(values[count]);
+            }
+        } else if (array instanceof long[]) {
+            final long[] values = (long[]) array;
+            length = values.length;
+            for (; count < length && canAppend(builder, start, count, maxElements, remaining, context); count++) {
+                separator(builder, count).append(values[count]).append('L');
+            }
+        } else if (array instanceof double[]) {
+            final double[] values = (double[]) array;
+            length = values.length;
+            for (; count < length && canAppend(builder, start, count, maxElements, remaining, context); count++) {
+                appendDouble(separator(builder, count), values[count]);
+            }
+        } else if (array instanceof float[]) {
+            final float[] values = (float[]) array;
+            length = values.length;
+            for (; count < length && canAppend(builder, start, count, maxElements, remaining, context); count++) {
+                appendFloat(separator(builder, count), values[count]);
+            }
+        } else if (array instanceof short[]) {
+            final short[] values = (short[]) array;
+            length = values.length;
+            for (; count < length && canAppend(builder, start, count, maxElements, remaining, context); count++) {
+                separator(builder, count).append(values[count]);
+            }
+        } else if (array instanceof char[]) {
+            final char[] values = (char[]) array;
+            length = values.length;
+            for (; count < length && canAppend(builder, start, count, maxElements, remaining, context); count++) {
+                appendChar(separator(builder, count), values[count]);
+            }
+        } else if (array instanceof boolean[]) {
+            final boolean[] values = (boolean[]) array;
+            length = values.length;
+            for (; count < length && canAppend(builder, start, count, maxElements, remaining, context); count++) {
+                separator(builder, count).append(values[count]);
+            }
+        }
+
+        if (count < length) {
+            context.markTruncated();
+            builder.append(truncatedArrayElements(length - count, count));
+        }
+
+        return RunaboutInput.of(builder.append('}').toString(), DependencySet.EMPTY);
+    }
+
+    //
+    // Bytes are Base64 encoded, which is about a quarter the length of decimal literals.
+    //
+    private static RunaboutInput byteArraySerializer(final byte[] bytes, final SerializationContext context) {
+
+        final long maxEncoded = context.getRemainingEvalLength() / 4 * 3;
+        final int count = (int) Math.min(bytes.length, Math.min(context.getLimits().getMaxElements(), maxEncoded));
+        final String encoded = Base64.getEncoder().encodeToString(
+                count == bytes.length ? bytes : Arrays.copyOf(bytes, count));
+
+        if (count < bytes.length) {
+            context.markTruncated();
+        }
+        final String truncated = count < bytes.length ? " " + truncatedComment(bytes.length - count) : "";
+        return RunaboutInput.of("Base64.getDecoder().decode(\"" + encoded + "\"" + truncated + ")",
+                DependencySet.of(Base64.class));
+    }
+
+    private static boolean canAppend(final StringBuilder builder, final int start, final int count,
+                                     final int maxElements, final long remaining,
+                                     final SerializationContext context) {
+        return count < maxElements && builder.length() - start < remaining &&
+                ((count & 4095) != 0 || !context.isTimedOut());
+    }
+
+    private static StringBuilder separator(final StringBuilder builder, final int count) {
+        return count == 0 ? builder : builder.append(", ");
+    }
+
+    private static void appendDouble(final StringBuilder builder, final double value) {
+        if (Double.isNaN(value)) {
+            builder.append("Double.NaN");
+        } else if (Double.isInfinite(value)) {
+            builder.append(value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY");
+        } else {
+            builder.append(value);
+        }
+    }
+
+    private static void appendFloat(final StringBuilder builder, final float value) {
+        if (Float.isNaN(value)) {
+            builder.append("Float.NaN");
+        } else if (Float.isInfinite(value)) {
+            builder.append(value > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY");
+        } else {
+            builder.append(value).append('f');
+        }
+    }
+
+    //
+    // Control characters use octal escapes, since a unicode escape of a line terminator is not a valid literal.
+    //
+    private static StringBuilder appendChar(final StringBuilder builder, final char c) {
+        builder.append('\'');
+        switch (c) {
+            case '\'':
+                builder.append("\\'");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            case '\b':
+                builder.append("\\b");
+                break;
+            case '\f':
+                builder.append("\\f");
+                break;
+            default:
+                if (c < 0x20 || c == 0x7f) {
+                    builder.append('\\').append(Integer.toOctalString(c));
+                } else if (Character.isSurrogate(c)) {
+                    builder.append("\\u").append(Integer.toHexString(c));
+                } else {
+                    builder.append(c);
+                }
+        }
+        return builder.append('\'');
+    }
+
+    private static String truncatedElements(final int count) {
+        return truncatedComment(count) + " ";
+    }
+
+    private static String truncatedArrayElements(final int count, final int written) {
+        return (written == 0 ? "" : " ") + truncatedComment(count);
+    }
+
+    private static String truncatedComment(final int count) {
+        return "/* " + count + " more truncated by Runabout */";
     }
 
     private static RunaboutInput stringSerializer(final String string) {
-        return RunaboutInput.of("\"" + RunaboutUtils.escapeQuotesOneLayer(string) + "\"", Collections.emptySet());
+        final StringBuilder builder = new StringBuilder(string.length() + 2).append('"');
+        return RunaboutInput.of(StringEscaper.escapeJava(string, builder).append('"').toString(), DependencySet.EMPTY);
+    }
+
+    private static RunaboutInput primitiveSerializer(final String cast, final Object object) {
+        return RunaboutInput.of(cast + object, DependencySet.EMPTY);
+    }
+
+    //
+    // Non-finite values have no literal, so they are written as the constants of their boxed type.
+    //
+    private static RunaboutInput floatSerializer(final Float value) {
+        if (value.isNaN() || value.isInfinite()) {
+            final StringBuilder builder = new StringBuilder(23);
+            appendFloat(builder, value);
+            return RunaboutInput.of(builder.toString(), DependencySet.EMPTY);
+        }
+        return primitiveSerializer("(float) ", value);
     }
 
-    private static RunaboutInput primitiveSerializer(final Object object) {
-        final String primitive = object instanceof Integer ? "int" : object.getClass().getSimpleName().toLowerCase();
-        return RunaboutInput.of("(" + primitive + ") " + object, Collections.emptySet());
+    private static RunaboutInput doubleSerializer(final Double value) {
+        if (value.isNaN() || value.isInfinite()) {
+            final StringBuilder builder = new StringBuilder(24);
+            appendDouble(builder, value);
+            return RunaboutInput.of(builder.toString(), DependencySet.EMPTY);
+        }
+        return primitiveSerializer("(double) ", value);
     }
 
-    static RunaboutInput charSerializer(final Object object) {
-        return RunaboutInput.of("'" + object + "'", Collections.emptySet());
+    static RunaboutInput charSerializer(final Character character) {
+        return RunaboutInput.of(appendChar(new StringBuilder(3), character).toString(), DependencySet.EMPTY);
     }
 
     private static RunaboutInput enumSerializer(final Enum<?> e) {
-        return RunaboutInput.of(e.getClass().getCanonicalName() + "." + e.name(),
-                Set.of(e.getClass().getCanonicalName()));
+        // Constants with a body are subclasses of their enum, so use the declaring class.
+        return RunaboutInput.of(e.getDeclaringClass().getCanonicalName() + "." + e.name(),
+                DependencySet.of(e.getDeclaringClass()));
+    }
+
+    /**
+     * Serializer for a type that contains other objects, which it serializes with the recursive serializer.
+     */
+    @FunctionalInterface
+    private interface BuiltInSerializer<T> {
+
+        RunaboutInput serialize(T object, RecursiveSerializer recursiveSerializer, SerializationContext context);
     }
 
-    private interface TypedSerializer<T> extends Function<T, RunaboutInput> {
+    /**
+     * Serializer for a type that does not contain other objects.
+     */
+    @FunctionalInterface
+    private interface LeafSerializer<T> {
+
+        RunaboutInput serialize(T object);
+    }
+
+    private static class Registration {
+
+        private final BuiltInSerializer<Object> serializer;
+        private final boolean recursive;
+        // Created once per registration, so specializing a collection's elements doesn't allocate a serializer.
+        @Nullable
+        private final RunaboutSerializer leafSerializer;
+
+        private Registration(final BuiltInSerializer<Object> serializer, final boolean recursive,
+                             @Nullable final RunaboutSerializer leafSerializer) {
+            this.serializer = serializer;
+            this.recursive = recursive;
+            this.leafSerializer = leafSerializer;
+        }
     }
 }
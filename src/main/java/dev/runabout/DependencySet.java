@@ -0,0 +1,190 @@
+package dev.runabout;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable set of dependencies backed by a sorted array. Sets are interned, so the few combinations of classes that
+ * most inputs depend on, such as a HashMap of ArrayLists, are shared by every input instead of each input building
+ * its own HashSet. Merging a set into one that already contains it returns the existing set without allocating.
+ */
+final class DependencySet extends AbstractSet<String> {
+
+    static final DependencySet EMPTY = new DependencySet(new String[0]);
+
+    // Bounds the intern table for applications with many distinct combinations. Sets past the bound still work,
+    // they just aren't shared.
+    private static final int MAX_INTERNED = 4096;
+    private static final ConcurrentMap<DependencySet, DependencySet> interned = new ConcurrentHashMap<>();
+
+    private static final ClassValue<DependencySet> classSets = new ClassValue<>() {
+        @Override
+        protected DependencySet computeValue(final Class<?> clazz) {
+            final String name = clazz.getCanonicalName();
+            return name == null ? EMPTY : intern(new DependencySet(new String[]{name}));
+        }
+    };
+
+    private final String[] names;
+    private final int hash;
+
+    private DependencySet(final String[] names) {
+        this.names = names;
+        this.hash = Arrays.stream(names).mapToInt(String::hashCode).sum();
+    }
+
+    /**
+     * Gets the set containing only the canonical name of a class.
+     *
+     * @param clazz The class.
+     * @return The set, or the empty set if the class has no canonical name.
+     */
+    static DependencySet of(final Class<?> clazz) {
+        return classSets.get(clazz);
+    }
+
+    /**
+     * Gets the set with the same elements as a collection of dependencies. Null elements are ignored.
+     *
+     * @param dependencies The dependencies.
+     * @return The set.
+     */
+    static DependencySet copyOf(final Collection<String> dependencies) {
+        if (dependencies instanceof DependencySet) {
+            return (DependencySet) dependencies;
+        }
+        final String[] names = dependencies.stream()
+                .filter(name -> name != null)
+                .sorted()
+                .distinct()
+                .toArray(String[]::new);
+        return names.length == 0 ? EMPTY : intern(new DependencySet(names));
+    }
+
+    /**
+     * Merges two sets, returning one of them unchanged if it already contains the other.
+     *
+     * @param a The first set.
+     * @param b The second set.
+     * @return The union of the sets.
+     */
+    static DependencySet union(final DependencySet a, final DependencySet b) {
+        if (a.containsAll(b)) {
+            return a;
+        }
+        if (b.containsAll(a)) {
+            return b;
+        }
+
+        final String[] merged = new String[a.names.length + b.names.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.names.length && j < b.names.length) {
+            final int compare = a.names[i].compareTo(b.names[j]);
+            if (compare < 0) {
+                merged[k++] = a.names[i++];
+            } else if (compare > 0) {
+                merged[k++] = b.names[j++];
+            } else {
+                merged[k++] = a.names[i++];
+                j++;
+            }
+        }
+        while (i < a.names.length) {
+            merged[k++] = a.names[i++];
+        }
+        while (j < b.names.length) {
+            merged[k++] = b.names[j++];
+        }
+        return intern(new DependencySet(k == merged.length ? merged : Arrays.copyOf(merged, k)));
+    }
+
+    private static DependencySet intern(final DependencySet set) {
+        final DependencySet existing = interned.get(set);
+        if (existing != null) {
+            return existing;
+        }
+        if (interned.size() >= MAX_INTERNED) {
+            return set;
+        }
+        final DependencySet previous = interned.putIfAbsent(set, set);
+        return previous == null ? set : previous;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof String && Arrays.binarySearch(names, o) >= 0;
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        if (c == this) {
+            return true;
+        }
+        if (!(c instanceof DependencySet)) {
+            return super.containsAll(c);
+        }
+
+        // Both arrays are sorted, so walk them together.
+        final String[] other = ((DependencySet) c).names;
+        if (other.length > names.length) {
+            return false;
+        }
+        int i = 0;
+        for (final String name : other) {
+            while (i < names.length && names[i].compareTo(name) < 0) {
+                i++;
+            }
+            if (i == names.length || !names[i].equals(name)) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < names.length;
+            }
+
+            @Override
+            public String next() {
+                if (index >= names.length) {
+                    throw new NoSuchElementException();
+                }
+                return names[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o instanceof DependencySet) {
+            return this == o || Arrays.equals(names, ((DependencySet) o).names);
+        }
+        return super.equals(o);
+    }
+}
@@ -0,0 +1,42 @@
+package dev.runabout;
+
+import dev.runabout.annotations.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Serializes the elements of a single map, collection or array. The serializer specialized for an element class is
+ * kept until an element of another class is reached, so homogeneous elements resolve it once.
+ */
+final class ElementSerializer {
+
+    private final RecursiveSerializer recursiveSerializer;
+
+    private Class<?> type;
+    private RunaboutSerializer serializer;
+
+    ElementSerializer(final RecursiveSerializer recursiveSerializer) {
+        this.recursiveSerializer = recursiveSerializer;
+    }
+
+    /**
+     * Serializes an element. A null element is always written as null, even if the recursive serializer has no
+     * input for it, so sequential and parallel serialization agree.
+     *
+     * @param element The element to serialize.
+     * @return The input of the element, or null if a non-null element could not be serialized.
+     */
+    @Nullable
+    RunaboutInput serialize(@Nullable final Object element) {
+        if (element == null) {
+            return Optional.ofNullable(recursiveSerializer.toRunaboutGeneric(null))
+                    .orElse(DefaultSerializer.getNullInput());
+        }
+        final Class<?> elementType = element.getClass();
+        if (elementType != type) {
+            type = elementType;
+            serializer = recursiveSerializer.forClass(elementType);
+        }
+        return serializer.toRunaboutGeneric(element);
+    }
+}
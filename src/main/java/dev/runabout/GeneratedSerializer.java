@@ -0,0 +1,82 @@
+package dev.runabout;
+
+import dev.runabout.annotations.RunaboutEnabled;
+import dev.runabout.annotations.ToRunabout;
+
+import java.util.Set;
+
+/**
+ * Serializer for a single class, generated at compile time by the Runabout annotation processor for classes with a
+ * {@link RunaboutEnabled} constructor or a {@link ToRunabout} method. Generated serializers read fields and call
+ * methods directly, so the {@link RunaboutService} does not need reflection to serialize the class.
+ * <br>
+ * For a class named {@code com.example.Value} the generated serializer is {@code com.example.Value_RunaboutSerializer}.
+ * Within the binary name, {@code _} is doubled and the {@code $} of nested classes is written as {@code _N_}, so a
+ * nested {@code Outer$Inner} and a top level {@code Outer_Inner} get different serializers. The RunaboutService looks
+ * up the generated serializer by this name and falls back to reflection if it does not exist.
+ * <br>
+ * To enable the processor, add the {@code processor} classifier of the runabout-java artifact to the annotation
+ * processor path, for example {@code annotationProcessor 'dev.runabout:runabout-java:<version>:processor'} in Gradle.
+ *
+ * @param <T> The type the serializer was generated for.
+ */
+public interface GeneratedSerializer<T> {
+
+    /**
+     * The suffix appended to a class name to get the name of its generated serializer.
+     */
+    String CLASS_NAME_SUFFIX = "_RunaboutSerializer";
+
+    /**
+     * Converts an object to a RunaboutInput.
+     *
+     * @param object     The object to serialize.
+     * @param serializer The serializer to use for the object's fields.
+     * @return A RunaboutInput containing a valid Java statement that can be used to recreate the object.
+     */
+    RunaboutInput toRunaboutInput(final T object, final RunaboutSerializer serializer);
+
+    /**
+     * Creates a RunaboutInput that invokes a {@link RunaboutEnabled} constructor.
+     * Used by generated serializers and by the RunaboutService when serializing with reflection.
+     *
+     * @param simpleName   The simple name of the class to construct.
+     * @param dependencies The dependencies of the class itself.
+     * @param serializer   The serializer to use for the constructor arguments.
+     * @param values       The field values to pass as arguments, in constructor parameter order.
+     * @return A RunaboutInput for the constructor call.
+     */
+    static RunaboutInput constructorInput(final String simpleName, final Set<String> dependencies,
+                                          final RunaboutSerializer serializer, final Object... values) {
+
+        final RunaboutInputBuilder builder = new RunaboutInputBuilder()
+                .append("new ")
+                .append(simpleName)
+                .append("(")
+                .addDependencies(dependencies);
+
+        for (int i = 0; i < values.length; i++) {
+            RunaboutInput valueInput = serializer.toRunaboutGeneric(values[i]);
+            if (!CompositeInput.hasEval(valueInput)) {
+                valueInput = DefaultSerializer.getNullInput();
+            }
+            builder.append(i == 0 ? "" : ", ").append(valueInput);
+        }
+
+        return builder.append(")").build();
+    }
+
+    /**
+     * Gets the name of the generated serializer class for a class.
+     *
+     * @param clazz The class to get the generated serializer name for.
+     * @return The fully qualified name of the generated serializer.
+     */
+    static String getGeneratedClassName(final Class<?> clazz) {
+        final String packageName = clazz.getPackageName();
+        final String binaryName = packageName.isEmpty() ? clazz.getName() :
+                clazz.getName().substring(packageName.length() + 1);
+        final String encodedName = binaryName.replace("_", "__").replace("$", "_N_");
+        return (packageName.isEmpty() ? "" : packageName + ".") + encodedName + CLASS_NAME_SUFFIX;
+    }
+}
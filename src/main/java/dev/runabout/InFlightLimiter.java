@@ -0,0 +1,110 @@
+package dev.runabout;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit on the number of ingest requests in flight, using additive increase and multiplicative decrease.
+ * Each request that succeeds while the limit is in use grows the limit by about one request per round trip, and a
+ * request that times out or is rejected as overloaded halves it. Requests already in flight when the limit is halved
+ * don't halve it again, so one overload costs one decrease.
+ * <p>
+ * Drainers acquire a permit once a batch is filled and the circuit breaker admits it, and wait with the batch while
+ * the limit is reached, so a slow endpoint backs scenarios up in the queue where the overflow policy applies.
+ */
+final class InFlightLimiter {
+
+    private final int maxLimit;
+
+    // Guarded by this.
+    private double limit;
+    private int inFlight;
+    private long decreasedAt;
+
+    /**
+     * @param initialLimit The starting limit, between 1 and the max limit.
+     * @param maxLimit     The maximum limit.
+     */
+    InFlightLimiter(final int initialLimit, final int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.decreasedAt = System.nanoTime();
+    }
+
+    /**
+     * Waits until a request can be sent, and reserves it.
+     *
+     * @return False if the thread was interrupted while waiting, with its interrupt status set.
+     */
+    synchronized boolean acquire() {
+        try {
+            while (inFlight >= (int) limit) {
+                wait();
+            }
+            inFlight++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns a permit that was not used to send a request.
+     */
+    synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Returns the permit of a completed request and adapts the limit.
+     *
+     * @param startNanos The nano time the request was sent at.
+     * @param overloaded True if the request timed out or the endpoint reported it was overloaded.
+     */
+    synchronized void release(final long startNanos, final boolean overloaded) {
+        if (overloaded) {
+            onOverload(startNanos);
+        } else if (inFlight >= (int) limit) {
+            // Only grow a limit that is in use, or an idle client would grow it without bound.
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Decreases the limit for an attempt that timed out or was rejected as overloaded, keeping the permit for a
+     * retry.
+     *
+     * @param startNanos The nano time the attempt was sent at.
+     */
+    synchronized void onOverload(final long startNanos) {
+        if (startNanos - decreasedAt > 0) {
+            limit = Math.max(1, limit / 2);
+            decreasedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Waits until no request is in flight.
+     *
+     * @param nanos The longest time to wait.
+     * @return True if no request is in flight.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    synchronized boolean awaitIdle(final long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        for (long remaining = nanos; inFlight > 0 && remaining > 0; remaining = deadline - System.nanoTime()) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return inFlight == 0;
+    }
+
+    /**
+     * @return The current limit.
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+}
@@ -3,9 +3,7 @@ package dev.runabout;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.StringJoiner;
 
 class JsonObjectImpl extends HashMap<String, Object> implements JsonObject {
 
@@ -53,39 +51,50 @@ class JsonObjectImpl extends HashMap<String, Object> implements JsonObject {
 
     @Override
     public String toJson() {
+        return appendJson(new StringBuilder()).toString();
+    }
 
-        final StringJoiner commaJoiner = new StringJoiner(",");
-
-        for (final Map.Entry<String, Object> entry: entrySet()) {
+    //
+    // Nested objects and lists are written into the same builder, and strings are escaped straight into it.
+    //
+    private StringBuilder appendJson(final StringBuilder builder) {
 
-            final StringBuilder singleKvp = new StringBuilder()
-                    .append("\"")
-                    .append(RunaboutUtils.escapeQuotesOneLayer(entry.getKey()))
-                    .append("\":")
-                    .append(valueToString(entry.getValue()));
+        builder.append('{');
 
-            commaJoiner.add(singleKvp);
+        boolean first = true;
+        for (final Map.Entry<String, Object> entry: entrySet()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            StringEscaper.escapeJson(entry.getKey(), builder.append('"')).append("\":");
+            appendValue(entry.getValue(), builder);
         }
 
-        return "{" + commaJoiner + "}";
+        return builder.append('}');
     }
 
-    private static String valueToString(final Object value) {
-
-        String string;
+    private static void appendValue(final Object value, final StringBuilder builder) {
 
-        if (value instanceof JsonObject) {
-            string = ((JsonObject) value).toJson();
+        if (value instanceof JsonObjectImpl) {
+            ((JsonObjectImpl) value).appendJson(builder);
+        } else if (value instanceof JsonObject) {
+            builder.append(((JsonObject) value).toJson());
         } else if (value instanceof String) {
-            string = "\"" + RunaboutUtils.escapeQuotesOneLayer((String) value) + "\"";
+            StringEscaper.escapeJson((String) value, builder.append('"')).append('"');
         } else if (value instanceof List<?>) {
-            final StringJoiner commaJoiner = new StringJoiner(",");
-            ((List<?>) value).forEach(innerValue -> commaJoiner.add(valueToString(innerValue)));
-            string = "[" + commaJoiner + "]";
+            builder.append('[');
+            boolean first = true;
+            for (final Object innerValue : (List<?>) value) {
+                if (!first) {
+                    builder.append(',');
+                }
+                first = false;
+                appendValue(innerValue, builder);
+            }
+            builder.append(']');
         } else {
-            string = Optional.ofNullable(value).map(Object::toString).orElse("null");
+            builder.append(value);
         }
-
-        return string;
     }
 }
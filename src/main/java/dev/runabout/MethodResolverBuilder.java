@@ -13,6 +13,7 @@ public class MethodResolverBuilder {
 
     private Set<Class<?>> callerClassBlacklist;
     private Predicate<StackWalker.StackFrame> stackFramePredicate;
+    private int maxFrameDepth = Integer.MAX_VALUE;
 
     /**
      * Sets the caller class blacklist for the MethodResolver.
@@ -40,6 +41,22 @@ public class MethodResolverBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum number of stack frames to walk when determining the method. If no frame within the depth
+     * passes the filters, the method is not found. Frames within the Runabout library count toward the depth.
+     * By default, the whole stack is walked.
+     *
+     * @param maxFrameDepth The maximum number of frames, at least 1.
+     * @return The MethodResolverBuilder.
+     */
+    public MethodResolverBuilder setMaxFrameDepth(final int maxFrameDepth) {
+        if (maxFrameDepth < 1) {
+            throw new IllegalArgumentException("Max frame depth must be at least 1.");
+        }
+        this.maxFrameDepth = maxFrameDepth;
+        return this;
+    }
+
     public MethodResolver build() {
 
         Predicate<StackWalker.StackFrame> predicate = s -> true;
@@ -55,6 +72,6 @@ public class MethodResolverBuilder {
             });
         }
 
-        return new MethodResolverImpl(predicate);
+        return new MethodResolverImpl(predicate, maxFrameDepth);
     }
 }
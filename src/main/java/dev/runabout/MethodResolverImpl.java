@@ -1,56 +1,85 @@
 package dev.runabout;
 
+import dev.runabout.annotations.Nullable;
+
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 class MethodResolverImpl implements MethodResolver {
 
-    private static final Set<StackWalker.Option> options = Set.of(
-            StackWalker.Option.RETAIN_CLASS_REFERENCE,
-            StackWalker.Option.SHOW_REFLECT_FRAMES
-    );
+    //
+    // Frames are fetched from the VM in batches, so the first batch is kept small since the caller is usually found
+    // within the first few frames.
+    //
+    private static final int FIRST_BATCH_SIZE = 32;
     private static final String LAMBDA_KEYWORD = "lambda$";
 
+    //
+    // Resolved methods by declaring class, then by name and type. The ClassValue ties each cache to its class, so it
+    // doesn't keep classes from being unloaded.
+    //
+    private static final ClassValue<Map<MethodKey, ResolvedMethod>> resolvedMethods = new ClassValue<>() {
+        @Override
+        protected Map<MethodKey, ResolvedMethod> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     private final Predicate<StackWalker.StackFrame> stackFramePredicate;
+    private final int maxFrameDepth;
+    private final StackWalker stackWalker;
 
     MethodResolverImpl() {
         this(stackFrame -> true);
     }
 
     MethodResolverImpl(final Predicate<StackWalker.StackFrame> stackFramePredicate) {
+        this(stackFramePredicate, Integer.MAX_VALUE);
+    }
+
+    MethodResolverImpl(final Predicate<StackWalker.StackFrame> stackFramePredicate, final int maxFrameDepth) {
         this.stackFramePredicate = stackFramePredicate;
+        this.maxFrameDepth = maxFrameDepth;
+        this.stackWalker = StackWalker.getInstance(Set.of(StackWalker.Option.RETAIN_CLASS_REFERENCE),
+                Math.min(maxFrameDepth, FIRST_BATCH_SIZE));
     }
 
     @Override
     public Method getMethod() {
+        final ResolvedMethod resolved = resolve();
+        return resolved == null ? null : resolved.method;
+    }
 
-        final AtomicBoolean failed = new AtomicBoolean(false);
-        final AtomicReference<Method> method = new AtomicReference<>();
-
-        try {
-            StackWalker.getInstance(options).forEach(stackFrame -> {
-                if (method.get() == null && !failed.get() && !isLambdaMethod(stackFrame) &&
-                        !isAnonymousCaller(stackFrame) &&
-                        stackFrame.getDeclaringClass().getPackage() != RunaboutService.class.getPackage() &&
-                        stackFramePredicate.test(stackFrame)) {
-                    try {
-                        method.set(getMethodFromStackFrame(stackFrame));
-                        throw new ExitStackWalkerException();
-                    } catch (NoSuchMethodException | SecurityException | NullPointerException e) {
-                        failed.set(true);
-                    }
-                }
-            });
-        } catch (ExitStackWalkerException e) {
-            // Do nothing, this is expected.
-        }
+    @Override
+    public String getSerializedMethod() {
+        final ResolvedMethod resolved = resolve();
+        return Objects.requireNonNull(resolved == null ? null : resolved.serialized,
+                "Caller method cannot be null.");
+    }
+
+    //
+    // The stream is consumed lazily, so the walk stops at the first candidate frame or at the max frame depth.
+    //
+    @Nullable
+    private ResolvedMethod resolve() {
+        return stackWalker.walk(frames -> frames
+                .limit(maxFrameDepth)
+                .filter(this::isCandidate)
+                .findFirst()
+                .map(MethodResolverImpl::resolveStackFrame)
+                .orElse(null));
+    }
 
-        return method.get();
+    private boolean isCandidate(final StackWalker.StackFrame stackFrame) {
+        return !isLambdaMethod(stackFrame) &&
+                !isAnonymousCaller(stackFrame) &&
+                stackFrame.getDeclaringClass().getPackage() != RunaboutService.class.getPackage() &&
+                stackFramePredicate.test(stackFrame);
     }
 
     private static boolean isLambdaMethod(final StackWalker.StackFrame stackFrame) {
@@ -63,19 +92,64 @@ class MethodResolverImpl implements MethodResolver {
                 stackFrame.getDeclaringClass().isAnonymousClass();
     }
 
-    private static Method getMethodFromStackFrame(final StackWalker.StackFrame stackFrame) throws NoSuchMethodException {
-        final Class<?> clazz = Objects.requireNonNull(stackFrame.getDeclaringClass());
-        final String methodName = Objects.requireNonNull(stackFrame.getMethodName());
-        final MethodType methodType = Objects.requireNonNull(stackFrame.getMethodType());
-        final Class<?>[] parameterTypes = Objects.requireNonNull(methodType.parameterArray());
-        return clazz.getDeclaredMethod(methodName, parameterTypes);
+    private static ResolvedMethod resolveStackFrame(final StackWalker.StackFrame stackFrame) {
+        final Class<?> clazz = stackFrame.getDeclaringClass();
+        final MethodKey key = new MethodKey(stackFrame.getMethodName(), stackFrame.getMethodType());
+        return resolvedMethods.get(clazz).computeIfAbsent(key, k -> ResolvedMethod.of(clazz, k));
+    }
+
+    /**
+     * Identifies a method within its declaring class. Overloads differ in their MethodType.
+     */
+    private static final class MethodKey {
+
+        private final String name;
+        private final MethodType type;
+
+        private MethodKey(final String name, final MethodType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MethodKey)) {
+                return false;
+            }
+            final MethodKey other = (MethodKey) o;
+            return name.equals(other.name) && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + type.hashCode();
+        }
     }
 
     /**
-     * Marker exception used to break out of the forEach loop in the StackWalker once
-     * we have found the stack frame we need.
+     * A method resolved from a stack frame and its serialized form, both null if the method could not be found.
      */
-    private static class ExitStackWalkerException extends RuntimeException {
+    private static final class ResolvedMethod {
+
+        @Nullable
+        private final Method method;
+        @Nullable
+        private final String serialized;
 
+        private ResolvedMethod(@Nullable final Method method) {
+            this.method = method;
+            this.serialized = method == null ? null : RunaboutUtils.methodToRunaboutString(method);
+        }
+
+        private static ResolvedMethod of(final Class<?> clazz, final MethodKey key) {
+            try {
+                return new ResolvedMethod(clazz.getDeclaredMethod(key.name, key.type.parameterArray()));
+            } catch (NoSuchMethodException | SecurityException e) {
+                return new ResolvedMethod(null);
+            }
+        }
     }
 }
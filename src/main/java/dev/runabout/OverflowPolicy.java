@@ -0,0 +1,32 @@
+package dev.runabout;
+
+/**
+ * What the {@link RunaboutApi} does with a scenario when its queue is full. Every scenario dropped, new or old, is
+ * reported to the {@link RunaboutListener} and counted in {@link RunaboutApi#getDroppedCount()}.
+ * See {@link RunaboutApiBuilder#setOverflowPolicy(OverflowPolicy)}.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Drops the new scenario, keeping the scenarios already queued. This is the default.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drops the oldest queued scenario to make room for the new one, so the queue holds the most recent scenarios.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Waits for room in the queue, up to the overflow timeout, then drops the new scenario. The calling thread
+     * blocks while it waits. See {@link RunaboutApiBuilder#setOverflowTimeout(java.time.Duration)}.
+     */
+    BLOCK_WITH_TIMEOUT,
+
+    /**
+     * Admits a sample of the scenarios offered while the queue stays full, each one replacing the oldest queued
+     * scenario. The chance of admitting a scenario falls as the overflow goes on, so a sustained overload keeps a
+     * spread of old and new scenarios instead of only the oldest or only the newest.
+     */
+    SAMPLE
+}
@@ -0,0 +1,156 @@
+package dev.runabout;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Serializes the instances of a scenario, or the elements of a large map or collection, in parallel on a
+ * ForkJoinPool. Each task serializes with a fork of the serialization context, and the forks are joined back into
+ * the context in order once every task is done.
+ */
+final class ParallelSerializer {
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    ParallelSerializer(final ForkJoinPool pool, final int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Whether a run of elements is large enough to serialize in parallel.
+     *
+     * @param size The number of elements.
+     * @return True if the elements should be serialized in parallel.
+     */
+    boolean isParallel(final int size) {
+        return size >= threshold;
+    }
+
+    /**
+     * Whether the instances of a scenario should be serialized in parallel, which is when there are several and at
+     * least one of them is a map, collection or array of at least the threshold size.
+     *
+     * @param objects The instances of the scenario.
+     * @return True if the instances should be serialized in parallel.
+     */
+    boolean isParallel(final Object[] objects) {
+        if (objects.length < 2) {
+            return false;
+        }
+        for (final Object object : objects) {
+            if (isParallel(sizeOf(object))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serializes the instances of a scenario in parallel, one task per instance.
+     *
+     * @param objects     The instances to serialize.
+     * @param context     The context of the scenario.
+     * @param serializers Creates the serializer for a fork of the context.
+     * @return The inputs of the instances in order.
+     */
+    RunaboutInput[] serializeInstances(final Object[] objects, final SerializationContext context,
+                                       final Function<SerializationContext, RunaboutSerializer> serializers) {
+
+        final RunaboutInput[] inputs = new RunaboutInput[objects.length];
+        final SerializationContext[] forks = new SerializationContext[objects.length];
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(objects.length);
+        for (int i = 0; i < objects.length; i++) {
+            final int index = i;
+            forks[i] = context.forkInstance(objects.length);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                inputs[index] = serializers.apply(forks[index]).toRunaboutGeneric(objects[index]);
+            }));
+        }
+
+        invokeAll(tasks);
+        for (final SerializationContext fork : forks) {
+            context.join(fork);
+        }
+        return inputs;
+    }
+
+    /**
+     * Serializes elements in parallel, in one contiguous chunk per worker of the pool. A chunk stops once its share
+     * of the eval length budget is used up, leaving its remaining elements null.
+     *
+     * @param elements    The elements to serialize.
+     * @param context     The context of the map or collection the elements belong to.
+     * @param serializers Creates the serializer for a fork of the context.
+     * @return The inputs of the elements in order, with null only for elements left unserialized.
+     */
+    RunaboutInput[] serializeElements(final Object[] elements, final SerializationContext context,
+                                      final Function<SerializationContext, RecursiveSerializer> serializers) {
+
+        final RunaboutInput[] inputs = new RunaboutInput[elements.length];
+        final int chunks = Math.max(1, Math.min(pool.getParallelism(), elements.length));
+        final int chunkSize = (elements.length + chunks - 1) / chunks;
+
+        final SerializationContext[] forks = new SerializationContext[chunks];
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            final SerializationContext fork = context.fork(chunks);
+            final int from = i * chunkSize;
+            final int to = Math.min(elements.length, from + chunkSize);
+            forks[i] = fork;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                final ElementSerializer elementSerializer = new ElementSerializer(serializers.apply(fork));
+                for (int j = from; j < to && !fork.isExhausted(); j++) {
+                    // Null is kept for elements left unserialized, so an element without an input is empty.
+                    inputs[j] = Optional.ofNullable(elementSerializer.serialize(elements[j]))
+                            .orElse(DefaultSerializer.getEmptyInput());
+                }
+            }));
+        }
+
+        invokeAll(tasks);
+        for (final SerializationContext fork : forks) {
+            context.join(fork);
+        }
+        return inputs;
+    }
+
+    //
+    // Tasks are forked when already running in the pool. Otherwise the first task runs on the calling thread while
+    // the pool runs the rest.
+    //
+    private void invokeAll(final List<ForkJoinTask<?>> tasks) {
+
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+            return;
+        }
+
+        for (int i = 1; i < tasks.size(); i++) {
+            pool.execute(tasks.get(i));
+        }
+        tasks.get(0).invoke();
+        for (int i = 1; i < tasks.size(); i++) {
+            tasks.get(i).join();
+        }
+    }
+
+    private static int sizeOf(final Object object) {
+        if (object instanceof Collection) {
+            return ((Collection<?>) object).size();
+        } else if (object instanceof Map) {
+            return ((Map<?, ?>) object).size();
+        } else if (object != null && object.getClass().isArray()) {
+            return Array.getLength(object);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,23 @@
+package dev.runabout;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SamplingPolicy that samples each call independently with a fixed probability.
+ */
+class ProbabilisticSamplingPolicy implements SamplingPolicy {
+
+    private final double rate;
+
+    ProbabilisticSamplingPolicy(final double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Sampling rate must be between 0 and 1.");
+        }
+        this.rate = rate;
+    }
+
+    @Override
+    public boolean sample() {
+        return ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
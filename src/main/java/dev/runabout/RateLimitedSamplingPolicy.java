@@ -0,0 +1,42 @@
+package dev.runabout;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SamplingPolicy implemented as a lock free token bucket. Rather than counting tokens, the bucket tracks the time at
+ * which it will next be full: each sampled call pushes that time one interval further out, and a call is rejected if
+ * doing so would put it more than a full burst ahead of now.
+ */
+class RateLimitedSamplingPolicy implements SamplingPolicy {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    RateLimitedSamplingPolicy(final double permitsPerSecond, final int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Permits per second must be greater than zero.");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1.");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.capacityNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    @Override
+    public boolean sample() {
+        final long now = System.nanoTime();
+        while (true) {
+            final long current = fullAt.get();
+            final long next = (current - now > 0 ? current : now) + intervalNanos;
+            if (next - now > capacityNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
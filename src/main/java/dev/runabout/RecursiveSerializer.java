@@ -0,0 +1,50 @@
+package dev.runabout;
+
+import dev.runabout.annotations.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * Serializer passed to built-in serializers of maps, collections and object arrays for their elements. Elements of
+ * a collection nearly always share one class, so built-in serializers ask for a serializer specialized to each
+ * element class once, and apply it until the class changes.
+ */
+@FunctionalInterface
+interface RecursiveSerializer extends RunaboutSerializer {
+
+    /**
+     * Gets a serializer for objects of exactly the given class. The serializer must produce the same input as
+     * {@link #toRunaboutGeneric(Object)} would for those objects.
+     *
+     * @param type The class of the objects to serialize.
+     * @return The specialized serializer, or this serializer if there is none.
+     */
+    default RunaboutSerializer forClass(final Class<?> type) {
+        return this;
+    }
+
+    /**
+     * Serializes the elements of a large map or collection in parallel, if parallel serialization is enabled and
+     * there are enough elements for it to pay off.
+     *
+     * @param size     The number of elements.
+     * @param elements Supplies the elements, only called if they are serialized in parallel.
+     * @return The inputs of the elements in order, with null for each element left unserialized because a budget
+     * was hit, or null if the elements should be serialized one at a time instead.
+     */
+    @Nullable
+    default RunaboutInput[] serializeParallel(final int size, final Supplier<Object[]> elements) {
+        return null;
+    }
+
+    /**
+     * Adapts a serializer into a RecursiveSerializer without any specialization.
+     *
+     * @param serializer The serializer to adapt.
+     * @return The serializer as a RecursiveSerializer.
+     */
+    static RecursiveSerializer of(final RunaboutSerializer serializer) {
+        return serializer instanceof RecursiveSerializer ? (RecursiveSerializer) serializer :
+                serializer::toRunaboutGeneric;
+    }
+}
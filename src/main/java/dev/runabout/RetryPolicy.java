@@ -0,0 +1,87 @@
+package dev.runabout;
+
+import dev.runabout.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which failed ingest requests are retried, and when. Backoff doubles with each attempt up to a cap, and the
+ * delay is picked at random from the upper half of the backoff, so clients that failed together don't retry together.
+ * A Retry-After header from the endpoint is honored when it asks for a longer wait, up to the max backoff. Longer
+ * waits are left to the circuit breaker, which holds every request until the time the endpoint asked for.
+ */
+final class RetryPolicy {
+
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    RetryPolicy(final int maxRetries, final Duration initialBackoff, final Duration maxBackoff) {
+        this.maxRetries = maxRetries;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    /**
+     * @param attempt The attempt that failed, starting at 0.
+     * @return True if another attempt is allowed.
+     */
+    boolean canRetry(final int attempt) {
+        return attempt < maxRetries;
+    }
+
+    /**
+     * Checks whether a response status is worth retrying: a timeout, too many requests, or a server error.
+     *
+     * @param code The HTTP status code.
+     * @return True if the request should be retried.
+     */
+    static boolean isRetryable(final int code) {
+        return code == 408 || code == 429 || code >= 500;
+    }
+
+    /**
+     * @param attempt    The attempt that failed, starting at 0.
+     * @param retryAfter The Retry-After header of the response, if any.
+     * @return The delay before the next attempt in nanoseconds, never more than the max backoff.
+     */
+    long backoffNanos(final int attempt, @Nullable final String retryAfter) {
+        final long requested = Math.min(parseRetryAfterNanos(retryAfter, Instant.now()), maxBackoffNanos);
+        long backoff = initialBackoffNanos;
+        for (int i = 0; i < attempt && backoff < maxBackoffNanos; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, maxBackoffNanos);
+        final long half = backoff / 2;
+        final long jittered = half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+        return Math.max(jittered, requested);
+    }
+
+    /**
+     * Parses a Retry-After header, given either as a number of seconds or as an HTTP date.
+     *
+     * @param retryAfter The header value, if any.
+     * @param now        The current time, for HTTP dates.
+     * @return The requested delay in nanoseconds, or 0 if there is none or it can't be parsed.
+     */
+    static long parseRetryAfterNanos(@Nullable final String retryAfter, final Instant now) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return 0;
+        }
+        final String value = retryAfter.trim();
+        try {
+            if (Character.isDigit(value.charAt(0))) {
+                return Duration.ofSeconds(Long.parseLong(value)).toNanos();
+            }
+            final Instant date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(0, Duration.between(now, date).toNanos());
+        } catch (NumberFormatException | DateTimeParseException | ArithmeticException e) {
+            return 0;
+        }
+    }
+}
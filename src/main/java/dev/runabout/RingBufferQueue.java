@@ -0,0 +1,132 @@
+package dev.runabout;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue backed by a ring buffer, for handing scenarios from producers to drainers without locks.
+ * Each slot has a sequence number that says whether it is free for the producer at a position, or holds the element
+ * for the consumer at a position. Producers and consumers claim positions with a CAS on their index, so the queue is
+ * safe for any number of producers and consumers, and dropping the oldest element from a producer is safe too.
+ * <p>
+ * The capacity is rounded up to a power of two. Size and iteration are weakly consistent, for monitoring only.
+ *
+ * @param <E> The element type.
+ */
+final class RingBufferQueue<E> extends AbstractQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    /**
+     * @param capacity The minimum capacity, at least 1.
+     */
+    RingBufferQueue(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 1 and 2^30.");
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return The number of elements the queue holds when full.
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public boolean offer(final E element) {
+        Objects.requireNonNull(element, "Element cannot be null");
+        long position = producerIndex.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (producerIndex.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    // Publishes the element to the consumer of this position.
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = producerIndex.get();
+            } else if (difference < 0) {
+                // The slot still holds the element from one lap ago.
+                return false;
+            } else {
+                // Another producer claimed the position first.
+                position = producerIndex.get();
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        long position = consumerIndex.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (consumerIndex.compareAndSet(position, position + 1)) {
+                    final E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    // Frees the slot for the producer one lap ahead.
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = consumerIndex.get();
+            } else if (difference < 0) {
+                // Empty, or the producer of this position has not published yet.
+                return null;
+            } else {
+                position = consumerIndex.get();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        final long position = consumerIndex.get();
+        final int index = (int) position & mask;
+        return sequences.get(index) == position + 1 ? elements.get(index) : null;
+    }
+
+    @Override
+    public int size() {
+        final long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return producerIndex.get() <= consumerIndex.get();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final List<E> snapshot = new ArrayList<>();
+        final long end = producerIndex.get();
+        for (long position = consumerIndex.get(); position < end; position++) {
+            final E element = elements.get((int) position & mask);
+            if (element != null) {
+                snapshot.add(element);
+            }
+        }
+        return snapshot.iterator();
+    }
+}
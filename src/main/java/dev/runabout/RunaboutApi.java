@@ -5,7 +5,7 @@ package dev.runabout;
  * The library comes with a default implementation and a builder to meet most use cases.
  * See {@link RunaboutApiBuilder} for more information.
  */
-public interface RunaboutApi {
+public interface RunaboutApi extends AutoCloseable {
 
     /**
      * Saves a scenario via the Runabout Ingest API.
@@ -13,4 +13,24 @@ public interface RunaboutApi {
      * @param scenario The scenario to save.
      */
     void ingestScenario(final RunaboutScenario scenario);
+
+    /**
+     * Gets the number of scenarios dropped without being sent, because the queue was full, their batch failed to
+     * send, or the api was closed. See {@link OverflowPolicy}.
+     *
+     * @return The number of dropped scenarios.
+     */
+    default long getDroppedCount() {
+        return 0;
+    }
+
+    /**
+     * Stops accepting scenarios, sends the scenarios already queued, and releases the threads that send them.
+     * Scenarios ingested afterwards, or still unsent when the close timeout runs out, retries included, are dropped
+     * and reported to the listener. See {@link RunaboutApiBuilder#setCloseTimeout(java.time.Duration)}.
+     */
+    @Override
+    default void close() {
+        // Nothing to release.
+    }
 }
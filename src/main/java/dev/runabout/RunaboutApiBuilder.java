@@ -1,12 +1,12 @@
 package dev.runabout;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Supplier;
 
 /**
@@ -18,8 +18,25 @@ public class RunaboutApiBuilder {
     private URI uri;
     private long timeout;
     private Executor executor;
+    private ThreadFactory threadFactory;
     private RunaboutListener listener;
     private Queue<RunaboutScenario> queue;
+    private Duration deduplicationWindow;
+    private int deduplicationMaxEntries;
+    private int maxBatchSize;
+    private int maxBatchBytes;
+    private Duration batchLinger;
+    private boolean adaptiveBatching;
+    private int drainerCount;
+    private OverflowPolicy overflowPolicy;
+    private Duration overflowTimeout;
+    private int maxInFlightRequests;
+    private int maxRetries;
+    private Duration initialBackoff;
+    private Duration maxBackoff;
+    private int failureThreshold;
+    private Duration openDuration;
+    private Duration closeTimeout;
 
     private final Supplier<String> tokenSupplier;
 
@@ -33,7 +50,20 @@ public class RunaboutApiBuilder {
     public RunaboutApiBuilder(final Supplier<String> tokenSupplier) {
         uri = URI.create(RunaboutConstants.INGEST_SCENARIOS_URL);
         timeout = 30_000;
-        queue = new ArrayBlockingQueue<>(1000);
+        queue = new RingBufferQueue<>(1024);
+        maxBatchSize = 100;
+        maxBatchBytes = 1_048_576;
+        batchLinger = Duration.ZERO;
+        drainerCount = 1;
+        overflowPolicy = OverflowPolicy.DROP_NEWEST;
+        overflowTimeout = Duration.ofMillis(10);
+        maxInFlightRequests = 16;
+        maxRetries = 3;
+        initialBackoff = Duration.ofMillis(100);
+        maxBackoff = Duration.ofSeconds(10);
+        failureThreshold = 5;
+        openDuration = Duration.ofSeconds(30);
+        closeTimeout = Duration.ofSeconds(5);
         this.tokenSupplier = tokenSupplier;
     }
 
@@ -57,7 +87,9 @@ public class RunaboutApiBuilder {
     }
 
     /**
-     * Set the executor used to make requests. Default is a fixed thread pool with a single thread.
+     * Set the executor the HTTP client sends ingest requests and handles their responses on. It only runs short
+     * tasks, so it can be shared. Queued scenarios are taken off the queue by drainers, which run on threads of
+     * their own, see {@link #setThreadFactory(ThreadFactory)}. By default, the HTTP client uses its own executor.
      *
      * @param executor Executor service to use.
      * @return The RunaboutApiBuilder instance.
@@ -67,12 +99,32 @@ public class RunaboutApiBuilder {
         return this;
     }
 
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    /**
+     * Set the thread factory for the drainers, which send queued scenarios to the ingest API. Each drainer holds
+     * its thread until the api is closed, so the factory must create a new thread per call, and not hand out pooled
+     * threads. Drainers are started with the first scenario. By default, each drainer runs on its own daemon
+     * thread. Interrupting a drainer's thread stops it.
+     *
+     * @param threadFactory ThreadFactory to use.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setThreadFactory(final ThreadFactory threadFactory) {
+        this.threadFactory = Objects.requireNonNull(threadFactory, "Thread factory cannot be null");
+        return this;
+    }
+
     public Queue<RunaboutScenario> getQueue() {
         return queue;
     }
 
     /**
      * Set the queue implementation used to hand off scenarios to the executor service, which will make the requests.
+     * The queue must be thread safe, and safe for concurrent polls when there is more than one drainer. By default,
+     * the queue is a lock-free ring buffer that holds 1024 scenarios. See {@link #setQueueCapacity(int)}.
      *
      * @param queue Queue implementation to use.
      * @return The RunaboutApiBuilder instance.
@@ -82,6 +134,52 @@ public class RunaboutApiBuilder {
         return this;
     }
 
+    /**
+     * Sets the capacity of the default lock-free ring buffer queue, replacing any queue set before.
+     * The capacity is rounded up to a power of two.
+     *
+     * @param capacity The minimum number of scenarios the queue holds, at least 1.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setQueueCapacity(final int capacity) {
+        this.queue = new RingBufferQueue<>(capacity);
+        return this;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets what happens to a scenario when the queue is full. By default, the new scenario is dropped.
+     *
+     * @param overflowPolicy The OverflowPolicy.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "Overflow policy cannot be null");
+        return this;
+    }
+
+    public Duration getOverflowTimeout() {
+        return overflowTimeout;
+    }
+
+    /**
+     * Sets how long {@link OverflowPolicy#BLOCK_WITH_TIMEOUT} waits for room in a full queue. By default, 10 ms.
+     *
+     * @param overflowTimeout The timeout, greater than zero.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setOverflowTimeout(final Duration overflowTimeout) {
+        Objects.requireNonNull(overflowTimeout, "Overflow timeout cannot be null");
+        if (overflowTimeout.isNegative() || overflowTimeout.isZero()) {
+            throw new IllegalArgumentException("Overflow timeout must be greater than zero.");
+        }
+        this.overflowTimeout = overflowTimeout;
+        return this;
+    }
+
     public URI getUri() {
         return uri;
     }
@@ -112,12 +210,243 @@ public class RunaboutApiBuilder {
         return this;
     }
 
+    public Duration getDeduplicationWindow() {
+        return deduplicationWindow;
+    }
+
+    public int getDeduplicationMaxEntries() {
+        return deduplicationMaxEntries;
+    }
+
+    /**
+     * Enables deduplication of scenarios before they are enqueued. A scenario with the same method and instances
+     * as one ingested within the window is dropped, and counted in the repeat count of the first occurrence if it
+     * has not been sent yet. Datetime, event ID and properties are ignored when comparing scenarios.
+     * By default, scenarios are not deduplicated.
+     *
+     * @param window     How long to remember a scenario.
+     * @param maxEntries The maximum number of scenarios to remember, at least 1.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setDeduplication(final Duration window, final int maxEntries) {
+        Objects.requireNonNull(window, "Deduplication window cannot be null");
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Deduplication window must be greater than zero.");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Deduplication max entries must be at least 1.");
+        }
+        this.deduplicationWindow = window;
+        this.deduplicationMaxEntries = maxEntries;
+        return this;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public Duration getBatchLinger() {
+        return batchLinger;
+    }
+
+    /**
+     * Sets how scenarios are batched into ingest requests. Each request sends the scenarios already queued, up to
+     * the max batch size and max body size, and waits up to the linger time for more to fill the batch.
+     * A single scenario larger than the max body size is sent on its own. By default, batches hold up to 100
+     * scenarios and 1 MiB, and are sent without lingering.
+     *
+     * @param maxBatchSize  The maximum number of scenarios per request, at least 1.
+     * @param maxBatchBytes The maximum request body size in bytes, at least 1.
+     * @param linger        How long to wait for a batch to fill, zero to send immediately.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setBatching(final int maxBatchSize, final int maxBatchBytes, final Duration linger) {
+        Objects.requireNonNull(linger, "Batch linger cannot be null");
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be at least 1.");
+        }
+        if (maxBatchBytes < 1) {
+            throw new IllegalArgumentException("Max batch bytes must be at least 1.");
+        }
+        if (linger.isNegative()) {
+            throw new IllegalArgumentException("Batch linger cannot be negative.");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.batchLinger = linger;
+        return this;
+    }
+
+    public boolean isAdaptiveBatching() {
+        return adaptiveBatching;
+    }
+
+    /**
+     * Enables adaptive batch sizes. Batches start at a single scenario, so scenarios are sent as soon as possible
+     * under light load. The batch size doubles, up to the max batch size, while batches fill up with more scenarios
+     * still queued, and halves when batches come up short. The linger time only applies to filling the current
+     * batch size. By default, every batch aims for the max batch size.
+     *
+     * @param adaptiveBatching True to adapt batch sizes to the load.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setAdaptiveBatching(final boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+        return this;
+    }
+
+    public int getDrainerCount() {
+        return drainerCount;
+    }
+
+    /**
+     * Sets the number of drainers sending queued scenarios to the ingest API. By default, there is one.
+     *
+     * @param drainerCount The number of drainers, at least 1.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setDrainerCount(final int drainerCount) {
+        if (drainerCount < 1) {
+            throw new IllegalArgumentException("Drainer count must be at least 1.");
+        }
+        this.drainerCount = drainerCount;
+        return this;
+    }
+
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    /**
+     * Sets the maximum number of ingest requests in flight at once. Within the maximum, the limit adapts to the
+     * endpoint: it grows while requests succeed, and halves when a request times out or is rejected with a 429 or
+     * 5xx status. A drainer waits for the limit holding its next batch, so a slow endpoint fills the queue and the
+     * overflow policy applies. By default, at most 16 requests are in flight, starting from 4.
+     *
+     * @param maxInFlightRequests The maximum number of requests in flight, at least 1.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setMaxInFlightRequests(final int maxInFlightRequests) {
+        if (maxInFlightRequests < 1) {
+            throw new IllegalArgumentException("Max in flight requests must be at least 1.");
+        }
+        this.maxInFlightRequests = maxInFlightRequests;
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * Sets how ingest requests that time out, fail to connect, or get a 408, 429 or 5xx response are retried.
+     * The backoff doubles with every attempt up to the max backoff, and each delay is picked at random from the upper
+     * half of the backoff. A longer Retry-After from the endpoint is honored up to the max backoff, and past it
+     * holds the circuit breaker open until the time the endpoint asked for. Every attempt for a batch carries the same Idempotency-Key header.
+     * Retries wait while the circuit breaker is open. A batch that runs out of retries is reported to the listener
+     * and dropped.
+     * By default, requests are retried 3 times, backing off from 100 ms up to 10 s.
+     *
+     * @param maxRetries     The maximum number of retries per batch, 0 to disable retries.
+     * @param initialBackoff The backoff before the first retry, greater than zero.
+     * @param maxBackoff     The maximum backoff, at least the initial backoff.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setRetries(final int maxRetries, final Duration initialBackoff,
+                                         final Duration maxBackoff) {
+        Objects.requireNonNull(initialBackoff, "Initial backoff cannot be null");
+        Objects.requireNonNull(maxBackoff, "Max backoff cannot be null");
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries cannot be negative.");
+        }
+        if (initialBackoff.isNegative() || initialBackoff.isZero()) {
+            throw new IllegalArgumentException("Initial backoff must be greater than zero.");
+        }
+        if (maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("Max backoff must be at least the initial backoff.");
+        }
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Sets the circuit breaker for the ingest endpoint. After the given number of consecutive failed requests,
+     * retries included, the breaker opens and drainers hold their batches without sending, so scenarios back up in
+     * the queue. Once the open duration has passed, a single trial request decides whether the breaker closes or
+     * stays open for another period. By default, the breaker opens after 5 failures, for 30 s.
+     *
+     * @param failureThreshold The number of consecutive failures that opens the breaker, at least 1.
+     * @param openDuration     How long the breaker stays open, greater than zero.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setCircuitBreaker(final int failureThreshold, final Duration openDuration) {
+        Objects.requireNonNull(openDuration, "Open duration cannot be null");
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1.");
+        }
+        if (openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("Open duration must be greater than zero.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        return this;
+    }
+
+    public Duration getCloseTimeout() {
+        return closeTimeout;
+    }
+
+    /**
+     * Sets how long {@link RunaboutApi#close()} waits for the scenarios already queued to be sent, and for the
+     * requests in flight to complete, before it stops the drainers. Scenarios still unsent then are dropped and
+     * reported to the listener. By default, 5 s.
+     *
+     * @param closeTimeout The timeout, zero to drop queued scenarios at once.
+     * @return The RunaboutApiBuilder instance.
+     */
+    public RunaboutApiBuilder setCloseTimeout(final Duration closeTimeout) {
+        Objects.requireNonNull(closeTimeout, "Close timeout cannot be null");
+        if (closeTimeout.isNegative()) {
+            throw new IllegalArgumentException("Close timeout cannot be negative.");
+        }
+        this.closeTimeout = closeTimeout;
+        return this;
+    }
+
     public Supplier<String> getTokenSupplier() {
         return tokenSupplier;
     }
 
+    private static Thread newDaemon(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "runabout-drainer");
+        thread.setDaemon(true);
+        return thread;
+    }
+
     public RunaboutApi build() {
-        this.executor = Optional.ofNullable(this.executor).orElseGet(() -> Executors.newFixedThreadPool(1));
+        this.threadFactory = Optional.ofNullable(this.threadFactory).orElse(RunaboutApiBuilder::newDaemon);
         return new RunaboutApiImpl(this);
     }
 }
@@ -5,11 +5,24 @@ import dev.runabout.annotations.Nullable;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.List;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
-import java.util.concurrent.Executor;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Supplier;
 
 class RunaboutApiImpl implements RunaboutApi {
@@ -17,20 +30,90 @@ class RunaboutApiImpl implements RunaboutApi {
     @Nullable
     private final RunaboutListener listener;
 
-    private final long timeout;
+    private final Duration requestTimeout;
     private final HttpClient httpClient;
     private final Supplier<String> tokenSupplier;
-    private final Executor executor;
+    private final ThreadFactory threadFactory;
     private final HttpRequest.Builder requestBuilder;
     private final Queue<RunaboutScenario> queue;
 
+    @Nullable
+    private final ScenarioDeduplicator deduplicator;
+
+    //
+    // Overflow. The overflow run counts the scenarios offered since the queue was last found with room, and sets
+    // the odds of admitting a scenario under the sample policy.
+    //
+    private final OverflowPolicy overflowPolicy;
+    private final long overflowTimeoutNanos;
+    private final AtomicLong overflowRun = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    //
+    // Batching. The batch size is only changed by adaptive batching, and races between drainers updating it are
+    // harmless.
+    //
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+    private final long lingerNanos;
+    private final boolean adaptiveBatching;
+    private volatile int batchSize;
+
+    private final InFlightLimiter limiter;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker breaker;
+
+    //
+    // Retries are scheduled on a thread of their own, started with the first retry, so token lookups and request
+    // building never run on a shared pool. Batches waiting to be retried are tracked, so close can drop them.
+    //
+    private final ScheduledThreadPoolExecutor retryScheduler;
+    private final Set<Batch> pendingRetries = ConcurrentHashMap.newKeySet();
+
+    //
+    // Drainers are started on the first scenario, and park while the queue is empty. Closing turns new scenarios
+    // away and lets the drainers flush the queue and stop on their own, until the close timeout stops them.
+    //
+    private final Drainer[] drainers;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final long closeTimeoutNanos;
+    private volatile boolean stopped;
+
     RunaboutApiImpl(final RunaboutApiBuilder builder) {
         this.listener = builder.getListener();
-        this.timeout = builder.getTimeout();
+        this.requestTimeout = Duration.ofMillis(builder.getTimeout());
         this.tokenSupplier = builder.getTokenSupplier();
-        this.executor = builder.getExecutor();
+        this.threadFactory = builder.getThreadFactory();
         this.queue = builder.getQueue();
-        this.httpClient = HttpClient.newBuilder().build();
+        this.deduplicator = Optional.ofNullable(builder.getDeduplicationWindow())
+                .map(window -> new ScenarioDeduplicator(window, builder.getDeduplicationMaxEntries()))
+                .orElse(null);
+        this.overflowPolicy = builder.getOverflowPolicy();
+        this.overflowTimeoutNanos = builder.getOverflowTimeout().toNanos();
+        this.maxBatchSize = builder.getMaxBatchSize();
+        this.maxBatchBytes = builder.getMaxBatchBytes();
+        this.lingerNanos = builder.getBatchLinger().toNanos();
+        this.adaptiveBatching = builder.isAdaptiveBatching();
+        this.batchSize = adaptiveBatching ? 1 : maxBatchSize;
+        this.limiter = new InFlightLimiter(Math.min(4, builder.getMaxInFlightRequests()),
+                builder.getMaxInFlightRequests());
+        this.retryPolicy = new RetryPolicy(builder.getMaxRetries(), builder.getInitialBackoff(),
+                builder.getMaxBackoff());
+        this.breaker = new CircuitBreaker(builder.getFailureThreshold(), builder.getOpenDuration().toNanos());
+        this.retryScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "runabout-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.closeTimeoutNanos = builder.getCloseTimeout().toNanos();
+        this.drainers = new Drainer[builder.getDrainerCount()];
+        for (int i = 0; i < drainers.length; i++) {
+            drainers[i] = new Drainer();
+        }
+        final HttpClient.Builder httpClientBuilder = HttpClient.newBuilder();
+        Optional.ofNullable(builder.getExecutor()).ifPresent(httpClientBuilder::executor);
+        this.httpClient = httpClientBuilder.build();
         this.requestBuilder = HttpRequest.newBuilder()
                 .header("Content-Type", "application/json")
                 .uri(builder.getUri());
@@ -38,52 +121,474 @@ class RunaboutApiImpl implements RunaboutApi {
 
     public void ingestScenario(final RunaboutScenario scenario) {
         Objects.requireNonNull(scenario.getMethod(), "Scenario cannot be null");
-        if (!queue.offer(scenario)) {
-            onError(new RunaboutException("Runabout scenario queue is full"));
+        if (closed.get()) {
+            drop("Runabout API is closed");
+            return;
+        }
+        if (deduplicator != null && deduplicator.isRepeat(scenario)) {
+            return;
+        }
+        if (!started.get() && started.compareAndSet(false, true)) {
+            startDrainers();
+        }
+        if (!enqueue(scenario)) {
+            drop("Runabout scenario queue is full");
+            return;
+        }
+        signal();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        started.set(true);
+        flush(System.nanoTime() + closeTimeoutNanos);
+        stopped = true;
+        for (final Drainer drainer : drainers) {
+            Optional.ofNullable(drainer.thread).ifPresent(Thread::interrupt);
+        }
+        retryScheduler.shutdownNow();
+        for (final Batch batch : pendingRetries) {
+            dropRetry(batch);
+        }
+        int remaining = 0;
+        while (queue.poll() != null) {
+            remaining++;
+        }
+        if (remaining > 0) {
+            drop(remaining, new RunaboutException("Runabout API closed, dropped " + remaining +
+                    " queued scenarios"));
+        }
+    }
+
+    //
+    // Wakes the drainers, so they send what is queued without lingering, and waits for them to stop once the queue
+    // is empty. Then waits for the requests in flight, retries included, to complete.
+    //
+    private void flush(final long deadline) {
+        for (final Drainer drainer : drainers) {
+            Optional.ofNullable(drainer.thread).ifPresent(LockSupport::unpark);
+        }
+        try {
+            for (final Drainer drainer : drainers) {
+                final Thread thread = drainer.thread;
+                final long remaining = deadline - System.nanoTime();
+                if (thread != null && thread != Thread.currentThread() && remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+                }
+            }
+            limiter.awaitIdle(deadline - System.nanoTime());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean enqueue(final RunaboutScenario scenario) {
+        if (queue.offer(scenario)) {
+            if (overflowRun.get() != 0) {
+                overflowRun.set(0);
+            }
+            return true;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                return replaceOldest(scenario);
+            case BLOCK_WITH_TIMEOUT:
+                return offerWithTimeout(scenario);
+            case SAMPLE:
+                // Admits the n-th scenario of the overflow with odds capacity / (capacity + n).
+                final long capacity = Math.max(1, queue.size());
+                final long run = overflowRun.incrementAndGet();
+                return ThreadLocalRandom.current().nextLong(capacity + run) < capacity && replaceOldest(scenario);
+            default:
+                return false;
+        }
+    }
+
+    //
+    // Drops queued scenarios until the new one fits. Drainers and other producers race for the same slots, so a
+    // few attempts are made before the new scenario is dropped instead.
+    //
+    private boolean replaceOldest(final RunaboutScenario scenario) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            if (queue.poll() != null) {
+                drop("Runabout scenario queue is full, dropped the oldest scenario");
+            }
+            if (queue.offer(scenario)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //
+    // Blocking queues wait on their own conditions. Other queues are retried with a growing pause, with the drainers
+    // woken in case they are parked.
+    //
+    private boolean offerWithTimeout(final RunaboutScenario scenario) {
+        if (queue instanceof BlockingQueue) {
+            try {
+                return ((BlockingQueue<RunaboutScenario>) queue).offer(scenario, overflowTimeoutNanos,
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        final long deadline = System.nanoTime() + overflowTimeoutNanos;
+        long pause = 10_000;
+        long remaining = overflowTimeoutNanos;
+        while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+            signal();
+            LockSupport.parkNanos(this, Math.min(pause, remaining));
+            if (queue.offer(scenario)) {
+                return true;
+            }
+            pause = Math.min(pause * 2, 1_000_000);
+            remaining = deadline - System.nanoTime();
+        }
+        return false;
+    }
+
+    private void drop(final String message) {
+        drop(1, new RunaboutException(message));
+    }
+
+    private void drop(final int count, final Throwable t) {
+        dropped.addAndGet(count);
+        onError(t);
+    }
+
+    //
+    // The thread is set before it starts, so producers can unpark it and close can interrupt it right away.
+    //
+    private void startDrainers() {
+        for (final Drainer drainer : drainers) {
+            try {
+                final Thread thread = Objects.requireNonNull(threadFactory.newThread(drainer),
+                        "Thread factory returned a null thread");
+                drainer.thread = thread;
+                thread.start();
+            } catch (RuntimeException e) {
+                onError(e);
+            }
+        }
+    }
+
+    /**
+     * Wakes one idle drainer, if any. Drainers that are busy will find the scenario on their next poll.
+     */
+    private void signal() {
+        for (final Drainer drainer : drainers) {
+            if (drainer.idle.get() && drainer.idle.compareAndSet(true, false)) {
+                LockSupport.unpark(drainer.thread);
+                return;
+            }
         }
-        executor.execute(new Worker());
     }
 
     /**
-     * Emit a json payload containing a scenario, event ID, and contextual data.
+     * Emit a json payload containing a batch of scenarios. The caller holds an in-flight permit, which is returned
+     * when the request completes, after any retries.
      *
-     * @param contents String json contents.
+     * @param body      The UTF-8 json body.
+     * @param scenarios The number of scenarios in the body.
      */
-    private void ingestScenario(final String contents) {
-        final HttpRequest request = requestBuilder
-                .setHeader("Authorization", "Bearer " + tokenSupplier.get())
-                .POST(HttpRequest.BodyPublishers.ofString(contents))
-                .build();
-        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
-                .orTimeout(timeout, java.util.concurrent.TimeUnit.MILLISECONDS)
-                .thenApply(HttpResponse::statusCode)
-                .thenAccept(code -> {
-                    if (code < 200 || code >= 300) {
-                        onError(new RunaboutException("Runabout API error. Error code: " + code));
-                    }
-                });
+    private void ingestScenarios(final byte[] body, final int scenarios) {
+        send(new Batch(body, scenarios, UUID.randomUUID().toString()), 0);
+    }
 
-        //
-        // Clear out the authorization header after the request is sent for security purposes.
-        //
-        requestBuilder.setHeader("Authorization", "");
+    //
+    // Every attempt for a batch carries the same idempotency key, so the endpoint can drop a batch it already has.
+    //
+    private void send(final Batch batch, final int attempt) {
+        final long start = System.nanoTime();
+        final CompletableFuture<HttpResponse<Void>> response;
+        try {
+            //
+            // Set the authorization header on a copy, so the shared builder never holds the token. The timeout is
+            // on the request, so the client aborts the exchange when it fires, and a request that timed out is no
+            // longer in flight once its permit is returned.
+            //
+            final HttpRequest request = requestBuilder.copy()
+                    .setHeader("Authorization", "Bearer " + tokenSupplier.get())
+                    .setHeader("Idempotency-Key", batch.idempotencyKey)
+                    .timeout(requestTimeout)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(batch.body))
+                    .build();
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        } catch (Throwable t) {
+            limiter.cancel();
+            throw t;
+        }
+        response.whenComplete((r, error) -> onResponse(batch, attempt, start, r, error));
+    }
+
+    private void onResponse(final Batch batch, final int attempt, final long start,
+                            @Nullable final HttpResponse<Void> response, @Nullable final Throwable error) {
+
+        final int code = response == null ? 0 : response.statusCode();
+        if (error == null && code >= 200 && code < 300) {
+            breaker.onSuccess();
+            limiter.release(start, false);
+            return;
+        }
+
+        // Responses that won't succeed on retry still show the endpoint is up.
+        final boolean retryable = error != null || RetryPolicy.isRetryable(code);
+        if (!retryable) {
+            breaker.onSuccess();
+            limiter.release(start, false);
+            drop(batch.scenarios, new RunaboutException("Runabout API error. Error code: " + code));
+            return;
+        }
+
+        breaker.onFailure();
+        final boolean overloaded = error != null || code == 429 || code >= 500;
+        final String retryAfter = response == null ? null : response.headers().firstValue("Retry-After")
+                .orElse(null);
+        // The endpoint asked every client to wait, so hold new batches and retries alike until then.
+        final long requested = RetryPolicy.parseRetryAfterNanos(retryAfter, Instant.now());
+        if (requested > 0) {
+            breaker.holdFor(requested);
+        }
+        if (!retryPolicy.canRetry(attempt)) {
+            limiter.release(start, overloaded);
+            drop(batch.scenarios, error != null
+                    ? error
+                    : new RunaboutException("Runabout API error. Error code: " + code));
+            return;
+        }
+        final long backoff = retryPolicy.backoffNanos(attempt, retryAfter);
+
+        // The batch keeps its permit while it waits to be retried, so held retries count against the limit.
+        if (overloaded) {
+            limiter.onOverload(start);
+        }
+        retry(batch, attempt + 1, backoff);
+    }
+
+    //
+    // Retries wait for the circuit breaker like new batches do. A retry that comes due while the breaker is open is
+    // rescheduled for when it may admit a request, without using up an attempt, so batches that were in flight when
+    // the breaker opened are held instead of dropped.
+    //
+    private void retry(final Batch batch, final int attempt, final long delayNanos) {
+        pendingRetries.add(batch);
+        try {
+            retryScheduler.schedule(() -> {
+                if (pendingRetries.remove(batch)) {
+                    resend(batch, attempt);
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed, and the batch was not among those close dropped.
+            dropRetry(batch);
+        }
+    }
+
+    private void resend(final Batch batch, final int attempt) {
+        final long wait = breaker.tryAcquire();
+        if (wait > 0) {
+            retry(batch, attempt, wait);
+            return;
+        }
+        try {
+            send(batch, attempt);
+        } catch (Throwable t) {
+            drop(batch.scenarios, t);
+        }
+    }
+
+    /**
+     * Drops a batch awaiting retry and returns its permit, unless its retry has already claimed it.
+     */
+    private void dropRetry(final Batch batch) {
+        if (pendingRetries.remove(batch)) {
+            limiter.cancel();
+            drop(batch.scenarios, new RunaboutException("Runabout API closed, dropped a batch of " +
+                    batch.scenarios + " scenarios awaiting retry"));
+        }
+    }
+
+    private void adaptBatchSize(final int sent, final int target) {
+        if (sent >= target && !queue.isEmpty()) {
+            batchSize = Math.min(maxBatchSize, target * 2);
+        } else if (sent < target / 2) {
+            batchSize = Math.max(1, target / 2);
+        }
     }
 
     private void onError(final Throwable t) {
         Optional.ofNullable(listener).ifPresent(l -> l.onError(t));
     }
 
-    private class Worker implements Runnable {
+    /**
+     * Long-lived loop that sends the queued scenarios in batches. A scenario that doesn't fit in the max body size
+     * of a batch starts the next batch. The drainer parks while the queue is empty, or while it lingers for a batch
+     * to fill, and producers unpark it when they enqueue a scenario.
+     */
+    private class Drainer implements Runnable {
+
+        private final AtomicBoolean idle = new AtomicBoolean(false);
+        private volatile Thread thread;
 
         @Override
         public void run() {
-            final RunaboutScenario scenario = queue.poll();
-            if (scenario != null) {
-                final JsonObject request = new JsonObjectImpl();
-                final JsonObject scenarioJson = scenario.toJsonObject();
-                request.put(RunaboutConstants.SCENARIOS_KEY, JsonObject.class, List.of(scenarioJson));
-                ingestScenario(request.toJson());
+            final Thread current = Thread.currentThread();
+            byte[] overflow = null;
+            while (!stopped && !current.isInterrupted()) {
+                if (closed.get() && overflow == null && queue.isEmpty()) {
+                    break;
+                }
+                try {
+                    overflow = drainBatch(overflow);
+                } catch (Throwable t) {
+                    onError(t);
+                }
+            }
+            if (overflow != null) {
+                drop(1, new RunaboutException("Runabout drainer stopped, dropped a scenario"));
+            }
+        }
+
+        //
+        // Sends one batch, starting with the scenario that didn't fit in the last batch. Returns the scenario that
+        // didn't fit in this one, which is kept even if this batch fails. The in-flight permit is only taken once the
+        // batch is filled and the breaker admits it, so drainers waiting on an empty queue or an open breaker don't
+        // count as requests in flight.
+        //
+        @Nullable
+        private byte[] drainBatch(@Nullable final byte[] overflow) {
+
+            final ScenarioBatch batch = new ScenarioBatch(maxBatchBytes);
+            final int target = batchSize;
+            final byte[] next;
+            try {
+                next = fillBatch(batch, overflow, target);
+            } catch (Throwable t) {
+                drop(batch.size(), t);
+                return null;
             }
+            if (batch.isEmpty()) {
+                return null;
+            }
+            if (stopped) {
+                drop(batch.size() + (next == null ? 0 : 1), new RunaboutException(
+                        "Runabout API closed, dropped a batch of " + batch.size() + " scenarios"));
+                return null;
+            }
+
+            // Hold the batch while the circuit breaker is open, so scenarios back up in the queue.
+            for (long wait = breaker.tryAcquire(); wait > 0; wait = breaker.tryAcquire()) {
+                LockSupport.parkNanos(this, wait);
+                if (Thread.currentThread().isInterrupted()) {
+                    drop(batch.size(), new RunaboutException("Runabout drainer interrupted, dropped a batch of " +
+                            batch.size() + " scenarios"));
+                    return next;
+                }
+            }
+            if (!limiter.acquire()) {
+                drop(batch.size(), new RunaboutException("Runabout drainer interrupted, dropped a batch of " +
+                        batch.size() + " scenarios"));
+                return next;
+            }
+
+            if (adaptiveBatching) {
+                adaptBatchSize(batch.size(), target);
+            }
+            try {
+                ingestScenarios(batch.toBody(), batch.size());
+            } catch (Throwable t) {
+                drop(batch.size(), t);
+            }
+            return next;
+        }
+
+        //
+        // Fills the batch from the queue, waiting for the first scenario if the queue is empty. Returns the scenario
+        // that didn't fit. A scenario that fails to encode is dropped on its own. Once the api is closed, the drainer
+        // neither lingers nor waits, so it flushes the queue and stops.
+        //
+        @Nullable
+        private byte[] fillBatch(final ScenarioBatch batch, @Nullable final byte[] overflow, final int target) {
+
+            if (overflow != null) {
+                batch.add(overflow);
+            }
+
+            long deadline = 0;
+            while (batch.size() < target) {
+                final RunaboutScenario scenario = queue.poll();
+                if (scenario == null) {
+                    if (batch.isEmpty()) {
+                        if (!closed.get()) {
+                            await(0);
+                        }
+                        return null;
+                    }
+                    // Only linger for a batch that has started, and until the deadline.
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + lingerNanos;
+                    }
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || closed.get()) {
+                        break;
+                    }
+                    await(remaining);
+                    continue;
+                }
+                final byte[] encoded;
+                try {
+                    encoded = ScenarioBatch.encode(scenario);
+                } catch (RuntimeException e) {
+                    drop(1, e);
+                    continue;
+                }
+                if (!batch.add(encoded)) {
+                    return encoded;
+                }
+            }
+            return null;
+        }
+
+        //
+        // Announces the drainer as idle before checking the queue one last time, so a producer that enqueues after
+        // the check sees the drainer as idle and unparks it. An unpark before the park makes the park return at once.
+        //
+        private void await(final long nanos) {
+            idle.set(true);
+            if (queue.isEmpty()) {
+                if (nanos > 0) {
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            idle.set(false);
+        }
+    }
+
+    /**
+     * An encoded batch of scenarios, with the idempotency key shared by every attempt to send it.
+     */
+    private static class Batch {
+
+        private final byte[] body;
+        private final int scenarios;
+        private final String idempotencyKey;
+
+        private Batch(final byte[] body, final int scenarios, final String idempotencyKey) {
+            this.body = body;
+            this.scenarios = scenarios;
+            this.idempotencyKey = idempotencyKey;
         }
     }
 }
@@ -0,0 +1,106 @@
+package dev.runabout;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A method that scenarios are captured for, resolved ahead of time. Passing a call site to
+ * {@link RunaboutService#createScenario(RunaboutCallSite, String, JsonObject, Object...)} or
+ * {@link RunaboutService#saveScenario(RunaboutCallSite, String, JsonObject, Object...)} skips the
+ * {@link MethodResolver} and its stack walk. Call sites are immutable, so they are typically created once and kept
+ * in a static final field:
+ * <pre>{@code
+ * private static final RunaboutCallSite CALL_SITE = RunaboutCallSite.of(MethodHandles.lookup(), "process",
+ *         MethodType.methodType(void.class, Order.class));
+ * }</pre>
+ */
+public final class RunaboutCallSite {
+
+    private final Method method;
+    private final String serializedMethod;
+
+    private RunaboutCallSite(final Method method) {
+        this.method = method;
+        this.serializedMethod = RunaboutUtils.methodToRunaboutString(method);
+    }
+
+    /**
+     * Creates a call site for a method.
+     *
+     * @param method The method scenarios are captured for.
+     * @return The call site.
+     */
+    public static RunaboutCallSite of(final Method method) {
+        return new RunaboutCallSite(Objects.requireNonNull(method, "Method cannot be null."));
+    }
+
+    /**
+     * Creates a call site for the only method with the given name declared by a class. Use
+     * {@link #of(MethodHandles.Lookup, String, MethodType)} or {@link #of(Method)} for overloaded methods.
+     *
+     * @param type The class that declares the method.
+     * @param name The name of the method.
+     * @return The call site.
+     * @throws RunaboutException If the class declares no method, or more than one method, with the name.
+     */
+    public static RunaboutCallSite of(final Class<?> type, final String name) {
+        Objects.requireNonNull(type, "Type cannot be null.");
+        Objects.requireNonNull(name, "Method name cannot be null.");
+
+        final List<Method> methods = Arrays.stream(type.getDeclaredMethods())
+                .filter(method -> method.getName().equals(name) && !method.isSynthetic())
+                .collect(Collectors.toList());
+        if (methods.size() != 1) {
+            throw new RunaboutException("Expected one method named: [" + name + "] in type: [" +
+                    type.getName() + "], found: [" + methods.size() + "].");
+        }
+        return new RunaboutCallSite(methods.get(0));
+    }
+
+    /**
+     * Creates a call site for a method declared by the lookup class, typically {@code MethodHandles.lookup()} in the
+     * class the method belongs to.
+     *
+     * @param lookup     The lookup whose lookup class declares the method.
+     * @param name       The name of the method.
+     * @param methodType The type of the method.
+     * @return The call site.
+     * @throws RunaboutException If the lookup class does not declare the method.
+     */
+    public static RunaboutCallSite of(final MethodHandles.Lookup lookup, final String name,
+                                      final MethodType methodType) {
+        Objects.requireNonNull(lookup, "Lookup cannot be null.");
+        Objects.requireNonNull(name, "Method name cannot be null.");
+        Objects.requireNonNull(methodType, "Method type cannot be null.");
+
+        final Class<?> type = lookup.lookupClass();
+        try {
+            final Method method = type.getDeclaredMethod(name, methodType.parameterArray());
+            if (method.getReturnType() != methodType.returnType()) {
+                throw new NoSuchMethodException();
+            }
+            return new RunaboutCallSite(method);
+        } catch (NoSuchMethodException e) {
+            throw new RunaboutException("No method: [" + name + methodType + "] in type: [" + type.getName() + "].");
+        }
+    }
+
+    /**
+     * @return The method scenarios are captured for.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The method as a string in the format expected by Runabout.
+     */
+    public String getSerializedMethod() {
+        return serializedMethod;
+    }
+}
@@ -19,6 +19,7 @@ class RunaboutConstants {
     public static final String PROPERTIES_KEY = "properties";
     public static final String INSTANCES_KEY = "instances";
     public static final String SCENARIOS_KEY = "scenarios";
+    public static final String REPEAT_COUNT_KEY = "repeat_count";
 
     public static final String INGEST_BASE_URL = "https://ingest.runabout.dev/";
     public static final String INGEST_SCENARIOS_URL = INGEST_BASE_URL + "scenarios";
@@ -0,0 +1,89 @@
+package dev.runabout;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A builder for creating a RunaboutInput out of text and other RunaboutInputs, such as a constructor call whose
+ * arguments are serialized fields. Appended inputs are referenced rather than copied, and the resulting eval String
+ * is written once, into a single StringBuilder, when it is first needed. Serializers that compose nested inputs
+ * should prefer this builder over concatenating {@link RunaboutInput#getEval()} Strings, which copies every
+ * nested eval once per level of nesting.
+ */
+public class RunaboutInputBuilder {
+
+    private final List<Object> parts = new ArrayList<>();
+    private DependencySet dependencies = DependencySet.EMPTY;
+    private int length;
+
+    /**
+     * Appends text to the eval String.
+     *
+     * @param text The text to append.
+     * @return The RunaboutInputBuilder.
+     */
+    public RunaboutInputBuilder append(final String text) {
+        if (!text.isEmpty()) {
+            parts.add(text);
+            length += text.length();
+        }
+        return this;
+    }
+
+    /**
+     * Appends the eval String of an input and adds its dependencies.
+     *
+     * @param input The input to append.
+     * @return The RunaboutInputBuilder.
+     */
+    public RunaboutInputBuilder append(final RunaboutInput input) {
+        if (input instanceof CompositeInput) {
+            parts.add(input);
+            length += CompositeInput.evalLength(input);
+        } else if (input.getEval() != null) {
+            append(input.getEval());
+        }
+        if (input.getDependencies() != null) {
+            addDependencies(input.getDependencies());
+        }
+        return this;
+    }
+
+    /**
+     * Adds a dependency, the fully qualified name of a class used in the eval String.
+     *
+     * @param dependency The dependency to add.
+     * @return The RunaboutInputBuilder.
+     */
+    public RunaboutInputBuilder addDependency(final String dependency) {
+        if (!dependencies.contains(dependency)) {
+            dependencies = DependencySet.union(dependencies, DependencySet.copyOf(List.of(dependency)));
+        }
+        return this;
+    }
+
+    /**
+     * Adds dependencies, the fully qualified names of classes used in the eval String.
+     *
+     * @param dependencies The dependencies to add.
+     * @return The RunaboutInputBuilder.
+     */
+    public RunaboutInputBuilder addDependencies(final Collection<String> dependencies) {
+        if (dependencies instanceof DependencySet) {
+            this.dependencies = DependencySet.union(this.dependencies, (DependencySet) dependencies);
+        } else if (!this.dependencies.containsAll(dependencies)) {
+            this.dependencies = DependencySet.union(this.dependencies, DependencySet.copyOf(dependencies));
+        }
+        return this;
+    }
+
+    /**
+     * Builds the RunaboutInput.
+     *
+     * @return The RunaboutInput.
+     */
+    public RunaboutInput build() {
+        return new CompositeInput(parts.toArray(), dependencies, length);
+    }
+}
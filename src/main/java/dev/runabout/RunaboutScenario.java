@@ -4,6 +4,7 @@ import dev.runabout.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -18,6 +19,7 @@ public final class RunaboutScenario {
     private final String datetime;
     private final JsonObject properties;
     private final Collection<RunaboutInstance> instances;
+    private final AtomicInteger repeatCount = new AtomicInteger();
 
     public RunaboutScenario(String method, String eventId, @Nullable String project, String datetime,
                             @Nullable JsonObject properties, Collection<RunaboutInstance> instances) {
@@ -53,6 +55,25 @@ public final class RunaboutScenario {
         return instances;
     }
 
+    /**
+     * Gets the number of identical scenarios that were dropped as repeats of this one.
+     * See {@link RunaboutApiBuilder#setDeduplication(java.time.Duration, int)}.
+     *
+     * @return The repeat count.
+     */
+    public int getRepeatCount() {
+        return repeatCount.get();
+    }
+
+    /**
+     * Gets the counter of repeats, which the deduplicator holds on to instead of the scenario.
+     *
+     * @return The repeat counter.
+     */
+    AtomicInteger getRepeatCounter() {
+        return repeatCount;
+    }
+
     public JsonObject toJsonObject() {
         return toJsonObject(JsonObjectImpl::new);
     }
@@ -61,7 +82,7 @@ public final class RunaboutScenario {
         final List<JsonObject> jsonInstances = instances.stream()
                 .map(instance -> instance.toJsonObject(jsonFactory))
                 .collect(Collectors.toList());
-        return jsonFactory.get()
+        final JsonObject json = jsonFactory.get()
                 .put(RunaboutConstants.VERSION_KEY, RunaboutConstants.JSON_CONTRACT_VERSION)
                 .put(RunaboutConstants.EVENT_ID_KEY, eventId)
                 .put(RunaboutConstants.PROJECT_KEY, project)
@@ -69,5 +90,7 @@ public final class RunaboutScenario {
                 .put(RunaboutConstants.PROPERTIES_KEY, properties)
                 .put(RunaboutConstants.METHOD_KEY, method)
                 .put(RunaboutConstants.INSTANCES_KEY, JsonObject.class, jsonInstances);
+        final int repeats = repeatCount.get();
+        return repeats > 0 ? json.put(RunaboutConstants.REPEAT_COUNT_KEY, repeats) : json;
     }
 }
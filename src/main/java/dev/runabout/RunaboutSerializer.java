@@ -10,6 +10,8 @@ import dev.runabout.annotations.ToRunabout;
  * The implementation should return null if the serializer cannot create a valid RunaboutInput for the given object.
  * For common types, consumers of the API can rely on the default serializer.
  * See {@link DefaultSerializer} for details on which types are serialized out of the box.
+ * Implementations that compose other inputs should use a {@link RunaboutInputBuilder} rather than concatenating
+ * eval Strings.
  * The implementation should be added to the {@link RunaboutService} via
  * {@link RunaboutServiceBuilder#setCustomSerializer(RunaboutSerializer)} or
  * registered as a service in the META-INF/services/dev.runabout.RunaboutSerializer file.
@@ -2,6 +2,8 @@ package dev.runabout;
 
 import dev.runabout.annotations.Nullable;
 
+import java.time.Duration;
+
 /**
  * Runabout interface for converting runtime java objects to JSON outputs that can be
  * used for replay debugging in <a href="https://www.runabout.dev">Runabout</a>.
@@ -57,6 +59,7 @@ public interface RunaboutService {
      * @param properties Nullable JsonObject contextual data for adding additional info to scenarios.
      * @param objects    The objects to convert to Runabout inputs in JSON.
      * @return A JSON object.
+     * @throws RunaboutTimeoutException If the scenario could not be serialized within its time budget.
      */
     RunaboutScenario createScenario(@Nullable final String eventId, @Nullable final JsonObject properties,
                                     final Object... objects);
@@ -64,11 +67,62 @@ public interface RunaboutService {
     /**
      * Emit a scenario with eventId and contextual data to the runabout ingest API.
      * This method is intended to be non-blocking and implementations should enqueue the data
-     * to be sent on another thread.
+     * to be sent on another thread. Scenarios that exceed their time budget are reported to the
+     * {@link RunaboutListener} and are not sent.
      *
      * @param eventId    Nullable String eventId for tracking scenarios that occurred in the same request.
      * @param properties Nullable JsonObject contextual data for adding additional info to scenarios.
      * @param objects    Objects to convert to Runabout instances for the scenario.
      */
      void saveScenario(final String eventId, final JsonObject properties, final Object... objects);
+
+    /**
+     * Converts the given objects to a Runabout JSON object for a call site resolved ahead of time, without resolving
+     * the caller method. See {@link #createScenario(String, JsonObject, Object...)} for the format.
+     * <p>
+     * The default implementation ignores the call site and resolves the caller method like the overload without it,
+     * so services written before call sites existed still compile.
+     *
+     * @param callSite   The method the objects are arguments of.
+     * @param eventId    Nullable String eventId for tracking scenarios that occurred in the same request.
+     * @param properties Nullable JsonObject contextual data for adding additional info to scenarios.
+     * @param objects    The objects to convert to Runabout inputs in JSON.
+     * @return A JSON object.
+     * @throws RunaboutTimeoutException If the scenario could not be serialized within its time budget.
+     */
+    default RunaboutScenario createScenario(final RunaboutCallSite callSite, @Nullable final String eventId,
+                                            @Nullable final JsonObject properties, final Object... objects) {
+        return createScenario(eventId, properties, objects);
+    }
+
+    /**
+     * Emit a scenario for a call site resolved ahead of time, without resolving the caller method.
+     * See {@link #saveScenario(String, JsonObject, Object...)}.
+     * <p>
+     * The default implementation ignores the call site and resolves the caller method like the overload without it.
+     *
+     * @param callSite   The method the objects are arguments of.
+     * @param eventId    Nullable String eventId for tracking scenarios that occurred in the same request.
+     * @param properties Nullable JsonObject contextual data for adding additional info to scenarios.
+     * @param objects    Objects to convert to Runabout instances for the scenario.
+     */
+    default void saveScenario(final RunaboutCallSite callSite, final String eventId, final JsonObject properties,
+                              final Object... objects) {
+        saveScenario(eventId, properties, objects);
+    }
+
+    /**
+     * Gets a view of this service that abandons scenarios which take longer than the given time budget to create,
+     * overriding {@link RunaboutServiceBuilder#setScenarioTimeout(Duration)}. The view shares all other
+     * configuration with this service, and is cheap enough to create per call.
+     * <p>
+     * The default implementation returns this service, so implementations that don't support time budgets create
+     * scenarios without one.
+     *
+     * @param timeout The time budget, greater than zero.
+     * @return The RunaboutService with the time budget.
+     */
+    default RunaboutService withTimeout(final Duration timeout) {
+        return this;
+    }
 }
@@ -1,9 +1,13 @@
 package dev.runabout;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A builder for creating a RunaboutService.
@@ -17,6 +21,23 @@ public class RunaboutServiceBuilder {
     private RunaboutSerializer customSerializer;
     private RunaboutListener listener;
     private RunaboutApi runaboutApi;
+    private SamplingPolicy samplingPolicy;
+    private final Map<Class<?>, TypedSerializer<?>> typedSerializers = new LinkedHashMap<>();
+
+    //
+    // Serialization budgets.
+    //
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxElements = Integer.MAX_VALUE;
+    private long maxInstanceEvalLength = Long.MAX_VALUE;
+    private long maxScenarioEvalLength = Long.MAX_VALUE;
+    private Duration scenarioTimeout;
+
+    //
+    // Parallel serialization.
+    //
+    private ForkJoinPool forkJoinPool;
+    private int parallelThreshold = 10_000;
 
     //
     // Constructor fields.
@@ -53,7 +74,8 @@ public class RunaboutServiceBuilder {
 
     /**
      * Sets the custom serializer for the RunaboutService.
-     * The serializer is used to serialize objects that do not have an instance serializer method.
+     * The serializer is used to serialize objects that do not have an instance serializer method or a serializer
+     * registered with {@link #registerSerializer(Class, TypedSerializer)}.
      * This serializer instance is not the default serializer, but a custom one.
      * By default, the serializer the first instance of the {@link RunaboutSerializer} service
      * discovered via the ServiceLoader.
@@ -66,6 +88,27 @@ public class RunaboutServiceBuilder {
         return this;
     }
 
+    /**
+     * Registers a serializer for a type and its subtypes. Typed serializers are used for objects that do not have an
+     * instance serializer method, before the custom serializer. Each class is served by the serializer registered
+     * for its most specific supertype, which is resolved once per class and cached.
+     *
+     * @param type       The type to serialize.
+     * @param serializer The serializer for the type.
+     * @param <T>        The type to serialize.
+     * @return The RunaboutServiceBuilder.
+     */
+    public <T> RunaboutServiceBuilder registerSerializer(final Class<T> type,
+                                                         final TypedSerializer<? super T> serializer) {
+        Objects.requireNonNull(type, "Type cannot be null.");
+        Objects.requireNonNull(serializer, "Typed serializer cannot be null.");
+        if (typedSerializers.putIfAbsent(type, serializer) != null) {
+            throw new IllegalArgumentException("A serializer is already registered for type: [" +
+                    type.getName() + "].");
+        }
+        return this;
+    }
+
     /**
      * Sets the listener to invoke on errors.
      *
@@ -77,6 +120,112 @@ public class RunaboutServiceBuilder {
         return this;
     }
 
+    /**
+     * Sets the sampling policy that decides which calls to {@link RunaboutService#saveScenario} capture a scenario.
+     * The policy runs before the caller method is resolved and before any serialization. By default, the first
+     * instance of the {@link SamplingPolicy} service discovered via the ServiceLoader is used, or every call is
+     * sampled if there is none.
+     *
+     * @param samplingPolicy The SamplingPolicy to use.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setSamplingPolicy(final SamplingPolicy samplingPolicy) {
+        this.samplingPolicy = Objects.requireNonNull(samplingPolicy, "Sampling policy cannot be null.");
+        return this;
+    }
+
+    /**
+     * Sets the maximum depth of nested objects, collections and maps to serialize. Values nested deeper are replaced
+     * with a truncation marker. By default, the depth is unlimited.
+     *
+     * @param maxDepth The maximum depth, at least 1.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setMaxDepth(final int maxDepth) {
+        this.maxDepth = requirePositive(maxDepth, "Max depth");
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of elements to serialize per collection or map. Remaining elements are dropped and
+     * replaced with a comment in the eval noting how many were truncated. By default, the number is unlimited.
+     *
+     * @param maxElements The maximum number of elements, at least 1.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setMaxElements(final int maxElements) {
+        this.maxElements = requirePositive(maxElements, "Max elements");
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of eval characters to produce for a single instance of a scenario. Once it is reached,
+     * remaining values in the instance are replaced with a truncation marker instead of being serialized.
+     * The limit stops serialization early, so evals can exceed it by the length of the last values serialized.
+     * By default, the length is unlimited.
+     *
+     * @param maxInstanceEvalLength The maximum number of characters, at least 1.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setMaxInstanceEvalLength(final long maxInstanceEvalLength) {
+        this.maxInstanceEvalLength = requirePositive(maxInstanceEvalLength, "Max instance eval length");
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of eval characters to produce for all instances of a scenario combined.
+     * Once it is reached, remaining values are replaced with a truncation marker instead of being serialized.
+     * By default, the length is unlimited.
+     *
+     * @param maxScenarioEvalLength The maximum number of characters, at least 1.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setMaxScenarioEvalLength(final long maxScenarioEvalLength) {
+        this.maxScenarioEvalLength = requirePositive(maxScenarioEvalLength, "Max scenario eval length");
+        return this;
+    }
+
+    /**
+     * Sets the time budget for creating a scenario. Serialization checks the deadline as it goes, and once it passes
+     * the remaining values are truncated and the scenario is abandoned with a {@link RunaboutTimeoutException}.
+     * Saved scenarios that time out are reported to the {@link RunaboutListener} and are not sent.
+     * By default, there is no time budget. Use {@link RunaboutService#withTimeout(Duration)} to override it per call.
+     *
+     * @param scenarioTimeout The time budget, greater than zero.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setScenarioTimeout(final Duration scenarioTimeout) {
+        this.scenarioTimeout = requirePositive(scenarioTimeout);
+        return this;
+    }
+
+    /**
+     * Enables parallel serialization on the given pool. Scenarios with several instances, at least one of which is a
+     * map, collection or array of at least the parallel threshold size, serialize their instances in parallel.
+     * Maps and collections of at least the threshold size serialize their elements in parallel chunks.
+     * Budgets still apply, but the remaining eval length budget is split evenly between the parallel parts.
+     * By default, serialization runs on the calling thread.
+     *
+     * @param forkJoinPool The pool to serialize on.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setForkJoinPool(final ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = Objects.requireNonNull(forkJoinPool, "Fork join pool cannot be null.");
+        return this;
+    }
+
+    /**
+     * Sets the number of elements a map, collection or array needs for parallel serialization, when it is enabled
+     * with {@link #setForkJoinPool(ForkJoinPool)}. By default, the threshold is 10,000 elements.
+     *
+     * @param parallelThreshold The minimum number of elements, at least 1.
+     * @return The RunaboutServiceBuilder.
+     */
+    public RunaboutServiceBuilder setParallelThreshold(final int parallelThreshold) {
+        this.parallelThreshold = requirePositive(parallelThreshold, "Parallel threshold");
+        return this;
+    }
+
     /**
      * Builds the RunaboutService.
      *
@@ -96,11 +245,34 @@ public class RunaboutServiceBuilder {
         final RunaboutListener listenerFinal = resolveService(listener, RunaboutListener.class)
                 .orElse(null);
 
+        final SamplingPolicy samplingPolicyFinal = resolveService(samplingPolicy, SamplingPolicy.class)
+                .orElse(null);
+
         return new RunaboutServiceImpl(projectName,
                 runaboutApiFinal,
                 methodResolverFinal,
                 listenerFinal,
-                customSerializerFinal);
+                customSerializerFinal,
+                new TypeRegistry<>(typedSerializers),
+                samplingPolicyFinal,
+                new SerializationLimits(maxDepth, maxElements, maxInstanceEvalLength, maxScenarioEvalLength,
+                        scenarioTimeout),
+                forkJoinPool == null ? null : new ParallelSerializer(forkJoinPool, parallelThreshold));
+    }
+
+    private static <N extends Number> N requirePositive(final N number, final String name) {
+        if (number.longValue() < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1.");
+        }
+        return number;
+    }
+
+    static Duration requirePositive(final Duration timeout) {
+        Objects.requireNonNull(timeout, "Timeout cannot be null.");
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero.");
+        }
+        return timeout;
     }
 
     private static <T> Optional<T> resolveService(final T input, final Class<T> service) {
@@ -1,26 +1,15 @@
 package dev.runabout;
 
 import dev.runabout.annotations.Nullable;
-import dev.runabout.annotations.RunaboutEnabled;
-import dev.runabout.annotations.RunaboutParameter;
-import dev.runabout.annotations.ToRunabout;
-
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
+
+import java.lang.invoke.MethodHandle;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
-import java.util.StringJoiner;
+import java.util.function.Supplier;
 
 class RunaboutServiceImpl implements RunaboutService {
 
@@ -29,6 +18,10 @@ class RunaboutServiceImpl implements RunaboutService {
     private final MethodResolver methodResolver;
     private final RunaboutListener listener;
     private final RunaboutSerializer customSerializer;
+    private final TypeRegistry<TypedSerializer<?>> typedSerializers;
+    private final SamplingPolicy samplingPolicy;
+    private final SerializationLimits limits;
+    private final ParallelSerializer parallelSerializer;
 
     private final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
 
@@ -36,179 +29,320 @@ class RunaboutServiceImpl implements RunaboutService {
                         RunaboutApi runaboutApi,
                         MethodResolver methodResolver,
                         RunaboutListener listener,
-                        RunaboutSerializer customSerializer) {
+                        RunaboutSerializer customSerializer,
+                        TypeRegistry<TypedSerializer<?>> typedSerializers,
+                        SamplingPolicy samplingPolicy,
+                        SerializationLimits limits,
+                        ParallelSerializer parallelSerializer) {
         this.projectName = projectName;
         this.methodResolver = methodResolver;
         this.customSerializer = customSerializer;
+        this.typedSerializers = typedSerializers;
+        this.samplingPolicy = samplingPolicy;
+        this.limits = limits;
+        this.parallelSerializer = parallelSerializer;
         this.runaboutApi = runaboutApi;
         this.listener = listener;
     }
 
     @Override
     public RunaboutInput serialize(Object object) {
+        return serialize(object, new SerializationContext(limits));
+    }
 
-        // Short circuit if object is null.
-        if (object == null) {
-            return DefaultSerializer.getNullInput();
-        }
+    @Override
+    public RunaboutService withTimeout(final Duration timeout) {
+        return new TimeoutView(RunaboutServiceBuilder.requirePositive(timeout));
+    }
 
-        RunaboutInput input;
+    @Override
+    public RunaboutScenario createScenario(final String eventId, final JsonObject properties, final Object... objects) {
+        return buildScenario(methodResolver.getSerializedMethod(), limits.getTimeout(), eventId, properties, objects);
+    }
 
-        input = invokeInstanceSerializer(object);
+    @Override
+    public RunaboutScenario createScenario(final RunaboutCallSite callSite, final String eventId,
+                                           final JsonObject properties, final Object... objects) {
+        Objects.requireNonNull(callSite, "Call site cannot be null.");
+        return buildScenario(callSite.getSerializedMethod(), limits.getTimeout(), eventId, properties, objects);
+    }
 
-        if (input == null) {
-            input = invokeSafe(this.customSerializer, object);
-        }
+    @Override
+    public void saveScenario(String eventId, JsonObject properties, Object... objects) {
+        save(null, limits.getTimeout(), eventId, properties, objects);
+    }
 
-        if (input == null) {
-            input = invokeSafe(o -> defaultSerializer.toRunaboutGenericRecursive(o, this::serialize), object);
+    @Override
+    public void saveScenario(final RunaboutCallSite callSite, final String eventId, final JsonObject properties,
+                             final Object... objects) {
+        save(Objects.requireNonNull(callSite, "Call site cannot be null."), limits.getTimeout(), eventId, properties,
+                objects);
+    }
+
+    //
+    // Saves a scenario for a call site, or for the method resolved from the stack if there is none.
+    //
+    private void save(@Nullable final RunaboutCallSite callSite, @Nullable final Duration timeout,
+                      final String eventId, final JsonObject properties, final Object... objects) {
+
+        // Decide whether to sample before doing any other work, so unsampled calls are nearly free.
+        if (!isSampled()) {
+            return;
         }
 
-        return Optional.ofNullable(input).orElseGet(DefaultSerializer::getEmptyInput);
+        final RunaboutScenario scenario;
+        try {
+            final String method = callSite == null ? methodResolver.getSerializedMethod() :
+                    callSite.getSerializedMethod();
+            scenario = buildScenario(method, timeout, eventId, properties, objects);
+        } catch (RunaboutTimeoutException e) {
+            onError(e);
+            return;
+        }
+        runaboutApi.ingestScenario(scenario);
     }
 
-    @Override
-    public RunaboutScenario createScenario(final String eventId, final JsonObject properties, final Object... objects) {
+    private RunaboutScenario buildScenario(final String method, @Nullable final Duration timeout, final String eventId,
+                                           final JsonObject properties, final Object... objects) {
 
         final String datetime = Instant.now().toString();
-        final String method = methodResolver.getSerializedMethod();
 
+        final SerializationContext context = new SerializationContext(limits, timeout);
         final List<RunaboutInstance> instances = new ArrayList<>();
-        for (final Object object: objects) {
-            final RunaboutInput input = serialize(object);
-            final String type = getTypeSafe(object);
-            final RunaboutInstance instance = RunaboutInstance.of(type, input);
-            instances.add(instance);
+        if (parallelSerializer != null && parallelSerializer.isParallel(objects)) {
+            final RunaboutInput[] inputs = parallelSerializer.serializeInstances(objects, context,
+                    ContextSerializer::new);
+            for (int i = 0; i < objects.length; i++) {
+                instances.add(RunaboutInstance.of(getTypeSafe(objects[i]), inputs[i]));
+            }
+        } else {
+            for (final Object object: objects) {
+                context.startInstance();
+                final RunaboutInput input = serialize(object, context);
+                final String type = getTypeSafe(object);
+                final RunaboutInstance instance = RunaboutInstance.of(type, input);
+                instances.add(instance);
+            }
+        }
+
+        if (context.isTimedOut()) {
+            throw new RunaboutTimeoutException("Scenario for method: [" + method + "] exceeded its timeout of: [" +
+                    timeout + "].");
         }
 
         return new RunaboutScenario(method, eventId, projectName, datetime, properties, instances);
     }
 
-    @Override
-    public void saveScenario(String eventId, JsonObject properties, Object... objects) {
-        final RunaboutScenario scenario = createScenario(eventId, properties, objects);
-        runaboutApi.ingestScenario(scenario);
+    private boolean isSampled() {
+        if (samplingPolicy == null) {
+            return true;
+        }
+        try {
+            return samplingPolicy.sample();
+        } catch (Throwable t) {
+            onError(t);
+            return false;
+        }
     }
 
-    private RunaboutInput invokeInstanceSerializer(final Object object) {
+    private RunaboutInput serialize(final Object object, final SerializationContext context) {
+
+        // Short circuit if the eval length or time budget is used up.
+        if (context.isExhausted()) {
+            context.markTruncated();
+            return DefaultSerializer.getTruncatedInput();
+        }
+
+        // Short circuit if object is null.
+        if (object == null) {
+            context.charge(DefaultSerializer.getNullInput());
+            return DefaultSerializer.getNullInput();
+        }
 
-        Class<?> clazz = object.getClass();
+        final boolean tracked = SerializationContext.isTracked(object);
 
         //
-        // Try RunaboutEnabled annotated constructors
+        // Stop at the max depth or on cycles, and reuse the input of an object reachable through multiple paths.
         //
-        RunaboutInput input = invokeRunaboutEnabledSerializer(object, clazz);
+        if (tracked) {
+            if (context.isMaxDepth()) {
+                context.markTruncated();
+                return DefaultSerializer.getTruncatedInput();
+            }
+
+            final RunaboutInput serialized = context.getSerialized(object);
+            if (serialized != null) {
+                context.charge(serialized);
+                return serialized;
+            }
+
+            if (!context.enter(object)) {
+                onError(new RunaboutException("Cycle detected in object graph at type: [" +
+                        SerializationPlan.forClass(object.getClass()).getTypeName() + "]."));
+                context.markTruncated();
+                return DefaultSerializer.getCycleInput();
+            }
+        }
+
+        final long charged = context.getEvalLength();
+        final int truncations = context.getTruncations();
+        RunaboutInput input = DefaultSerializer.getEmptyInput();
+        try {
+            input = invokeSerializers(object, context);
+        } finally {
+            if (tracked) {
+                // An input with anything truncated in it depends on the budgets left here, so it isn't reused.
+                context.exit(object, context.getTruncations() == truncations ? input : null);
+            }
+        }
 
         //
-        // Try ToRunabout annotated methods.
+        // Values that didn't serialize nested values through the context are charged against the budget in full.
         //
+        if (context.getEvalLength() == charged) {
+            context.charge(input);
+        }
+
+        return input;
+    }
+
+    private RunaboutInput invokeSerializers(final Object object, final SerializationContext context) {
+
+        RunaboutInput input;
+
+        input = invokeInstanceSerializer(object, context);
+
         if (input == null) {
-            input = invokeToRunaboutSerializer(object, clazz);
-            while (input == null && clazz.getSuperclass() != null) {
-                clazz = clazz.getSuperclass();
-                input = invokeToRunaboutSerializer(object, clazz);
-            }
+            input = invokeTypedSerializer(object, context);
+        }
+
+        if (input == null) {
+            input = invokeSafe(this.customSerializer, object);
+        }
+
+        if (input == null) {
+            final RunaboutSerializer recursiveSerializer = new ContextSerializer(context);
+            input = invokeSafe(o -> defaultSerializer.toRunaboutGenericRecursive(o, recursiveSerializer, context),
+                    object);
+        }
+
+        return Optional.ofNullable(input).orElseGet(DefaultSerializer::getEmptyInput);
+    }
+
+    /**
+     * Serializes an object that has no instance or typed serializer, and no custom serializer to consult, directly
+     * with its default leaf serializer.
+     */
+    private RunaboutInput serializeLeaf(final Object object, final RunaboutSerializer leafSerializer,
+                                        final SerializationContext context) {
+
+        if (context.isExhausted()) {
+            context.markTruncated();
+            return DefaultSerializer.getTruncatedInput();
+        }
+
+        final RunaboutInput input = invokeSafe(leafSerializer, object);
+        final RunaboutInput result = input == null ? DefaultSerializer.getEmptyInput() : input;
+        context.charge(result);
+        return result;
+    }
+
+    @Nullable
+    private RunaboutInput invokeInstanceSerializer(final Object object, final SerializationContext context) {
+
+        final SerializationPlan plan = SerializationPlan.forClass(object.getClass());
+
+        if (plan.getError() != null) {
+            onError(plan.getError());
+        }
+
+        RunaboutInput input = null;
+
+        switch (plan.getStrategy()) {
+            case GENERATED:
+                input = invokeGeneratedSerializer(object, plan, context);
+                break;
+            case RUNABOUT_ENABLED:
+                input = invokeRunaboutEnabledSerializer(object, plan, context);
+                break;
+            case TO_RUNABOUT:
+                input = invokeSafe(plan.getMethodHandle(), object);
+                break;
+            case NONE:
+            default:
+                break;
         }
 
         return input;
     }
 
+    //
+    // Suppress warnings for the cast to TypedSerializer<Object>. The registry only returns serializers registered
+    // for a supertype of the object's class.
+    //
     @Nullable
-    private RunaboutInput invokeRunaboutEnabledSerializer(final Object object, final Class<?> clazz) {
-        try {
-            RunaboutInput input = null;
-            final Constructor<?> constructor = Arrays.stream(clazz.getConstructors())
-                    .filter(c -> c.isAnnotationPresent(RunaboutEnabled.class))
-                    .findFirst().orElse(null);
-
-            if (constructor != null) {
-
-                final Map<String, List<Integer>> parameterMap = new HashMap<>();
-                for (int i = 0; i < constructor.getParameters().length; i++) {
-                    final Parameter parameter = constructor.getParameters()[i];
-                    if (!parameter.isAnnotationPresent(RunaboutParameter.class)) {
-                        throw new RuntimeException("RunaboutEnabled constructor parameters must be " +
-                                "annotated with RunaboutParameter. Parameter: [" + parameter.getName() +
-                                "] in class: [" + clazz.getCanonicalName() + "] is not annotated.");
-                    }
-                    parameterMap
-                            .computeIfAbsent(parameter.getAnnotation(RunaboutParameter.class).value(),
-                                    v -> new ArrayList<>())
-                            .add(i);
-                }
+    @SuppressWarnings("unchecked")
+    private RunaboutInput invokeTypedSerializer(final Object object, final SerializationContext context) {
 
-                final List<Field> fields = new ArrayList<>(parameterMap.size());
-
-                Arrays.stream(clazz.getDeclaredFields())
-                        .takeWhile(f -> !parameterMap.isEmpty())
-                        .forEach(f -> {
-                            final List<Integer> indices = parameterMap.remove(f.getName());
-                            if (indices != null) {
-                                indices.forEach(index -> fields.add(index, f));
-                            }
-                        });
-
-                if (parameterMap.isEmpty()) {
-
-                    final StringJoiner joiner = new StringJoiner(", ");
-                    final Set<String> dependencies = new HashSet<>(Set.of(clazz.getCanonicalName()));
-
-                    for (Field field : fields) {
-
-                        Object value;
-                        field.setAccessible(true);
-                        value = field.get(object);
-                        RunaboutInput fieldInput = serialize(value);
-                        if (fieldInput == null || fieldInput.getEval() == null || fieldInput.getEval().isEmpty()) {
-                            fieldInput = DefaultSerializer.getNullInput();
-                        }
-                        joiner.add(fieldInput.getEval());
-                        dependencies.addAll(fieldInput.getDependencies());
-                    }
-
-                    final String eval = "new " + clazz.getSimpleName() + "(" + joiner + ")";
-                    input = RunaboutInput.of(eval, dependencies);
-                }
-            }
+        if (typedSerializers.isEmpty()) {
+            return null;
+        }
+
+        final TypedSerializer<Object> serializer = (TypedSerializer<Object>) typedSerializers.get(object.getClass());
+        if (serializer == null) {
+            return null;
+        }
 
-            return input;
+        try {
+            final RunaboutInput input = serializer.toRunaboutInput(object, v -> serialize(v, context));
+            return validInput(input) ? input : null;
         } catch (Throwable t) {
-            listener.onError(t);
+            onError(t);
             return null;
         }
     }
 
     @Nullable
-    private RunaboutInput invokeToRunaboutSerializer(final Object object, final Class<?> clazz) {
-
-        final Set<Method> methods = Optional.ofNullable(clazz).map(cls -> {
-            final Set<Method> set = new HashSet<>(Set.of(cls.getMethods()));
-            set.addAll(Set.of(cls.getDeclaredMethods()));
-            return set;
-        }).orElseGet(Collections::emptySet);
+    private RunaboutInput invokeGeneratedSerializer(final Object object, final SerializationPlan plan,
+                                                    final SerializationContext context) {
+        try {
+            final RunaboutInput input = plan.getGenerated().toRunaboutInput(object, v -> serialize(v, context));
+            return validInput(input) ? input : null;
+        } catch (Throwable t) {
+            onError(t);
+            return null;
+        }
+    }
 
-        return methods.stream()
-                .filter(method -> method.isAnnotationPresent(ToRunabout.class))
-                .findFirst()
-                .map(method -> invokeSafe(method, object))
-                .orElse(null);
+    @Nullable
+    private RunaboutInput invokeRunaboutEnabledSerializer(final Object object, final SerializationPlan plan,
+                                                          final SerializationContext context) {
+        try {
+            final List<MethodHandle> getters = plan.getGetters();
+            final Object[] values = new Object[getters.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (Object) getters.get(i).invokeExact(object);
+            }
+            return GeneratedSerializer.constructorInput(plan.getSimpleName(), plan.getDependencies(),
+                    v -> serialize(v, context), values);
+        } catch (Throwable t) {
+            onError(t);
+            return null;
+        }
     }
 
-    private RunaboutInput invokeSafe(final Method method, final Object object) {
+    private RunaboutInput invokeSafe(final MethodHandle methodHandle, final Object object) {
         RunaboutInput input = null;
 
         try {
-            method.setAccessible(true);
-            final RunaboutInput tempInput = (RunaboutInput) method.invoke(object);
+            final RunaboutInput tempInput = (RunaboutInput) methodHandle.invokeExact(object);
 
             if (validInput(tempInput)) {
                 input = tempInput;
             }
 
-        } catch (InvocationTargetException e) {
-            listener.onError(e.getCause() != null ? e.getCause() : e);
         } catch (Throwable t) {
-            listener.onError(t);
+            onError(t);
         }
 
         return input;
@@ -226,29 +360,118 @@ class RunaboutServiceImpl implements RunaboutService {
                 }
 
             } catch (Throwable ex) {
-                listener.onError(ex);
+                onError(ex);
             }
         }
 
         return input;
     }
 
+    /**
+     * Recursive serializer for the elements of a map, collection or array in a serialization pass. Elements of a leaf
+     * type that would fall through every other serializer to the default serializer skip the dispatch and go straight
+     * to their default serializer. Large maps and collections are serialized in parallel if it is enabled.
+     */
+    private class ContextSerializer implements RecursiveSerializer {
+
+        private final SerializationContext context;
+
+        private ContextSerializer(final SerializationContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public RunaboutInput toRunaboutGeneric(final Object object) {
+            return serialize(object, context);
+        }
+
+        @Override
+        public RunaboutSerializer forClass(final Class<?> type) {
+
+            if (customSerializer != null || SerializationContext.isTracked(type) ||
+                    typedSerializers.get(type) != null) {
+                return this;
+            }
+
+            final SerializationPlan plan = SerializationPlan.forClass(type);
+            if (plan.getStrategy() != SerializationPlan.Strategy.NONE || plan.getError() != null) {
+                return this;
+            }
+
+            final RunaboutSerializer leafSerializer = DefaultSerializer.getLeafSerializer(type);
+            return leafSerializer == null ? this : object -> serializeLeaf(object, leafSerializer, context);
+        }
+
+        @Nullable
+        @Override
+        public RunaboutInput[] serializeParallel(final int size, final Supplier<Object[]> elements) {
+            if (parallelSerializer == null || !parallelSerializer.isParallel(size)) {
+                return null;
+            }
+            return parallelSerializer.serializeElements(elements.get(), context, ContextSerializer::new);
+        }
+    }
+
+    /**
+     * View of the service with a different time budget, which passes the budget to every call instead of copying
+     * the service.
+     */
+    private class TimeoutView implements RunaboutService {
+
+        private final Duration timeout;
+
+        private TimeoutView(final Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public RunaboutInput serialize(final Object object) {
+            return RunaboutServiceImpl.this.serialize(object, new SerializationContext(limits, timeout));
+        }
+
+        @Override
+        public RunaboutScenario createScenario(final String eventId, final JsonObject properties,
+                                               final Object... objects) {
+            return buildScenario(methodResolver.getSerializedMethod(), timeout, eventId, properties, objects);
+        }
+
+        @Override
+        public void saveScenario(final String eventId, final JsonObject properties, final Object... objects) {
+            save(null, timeout, eventId, properties, objects);
+        }
+
+        @Override
+        public RunaboutScenario createScenario(final RunaboutCallSite callSite, final String eventId,
+                                               final JsonObject properties, final Object... objects) {
+            Objects.requireNonNull(callSite, "Call site cannot be null.");
+            return buildScenario(callSite.getSerializedMethod(), timeout, eventId, properties, objects);
+        }
+
+        @Override
+        public void saveScenario(final RunaboutCallSite callSite, final String eventId, final JsonObject properties,
+                                 final Object... objects) {
+            save(Objects.requireNonNull(callSite, "Call site cannot be null."), timeout, eventId, properties,
+                    objects);
+        }
+
+        @Override
+        public RunaboutService withTimeout(final Duration timeout) {
+            return RunaboutServiceImpl.this.withTimeout(timeout);
+        }
+    }
+
     private static boolean validInput(final RunaboutInput input) {
-        return input != null && input.getEval() != null && !input.getEval().isEmpty() &&
-                input.getDependencies() != null;
+        return CompositeInput.hasEval(input) && input.getDependencies() != null;
+    }
+
+    private void onError(final Throwable t) {
+        Optional.ofNullable(listener).ifPresent(l -> l.onError(t));
     }
 
     private static String getTypeSafe(final Object object) {
         return Optional.ofNullable(object)
                 .map(Object::getClass)
-                .map(clazz -> clazz.isAnonymousClass() ? getAnonymousImplClass(clazz) : clazz.getCanonicalName())
-                .orElse("null");
-    }
-
-    private static String getAnonymousImplClass(final Class<?> clazz) {
-        return Optional.ofNullable(clazz)
-                .map(c -> c.getInterfaces().length > 0 ? c.getInterfaces()[0] : c.getSuperclass())
-                .map(Class::getCanonicalName)
+                .map(clazz -> SerializationPlan.forClass(clazz).getTypeName())
                 .orElse("null");
     }
 }
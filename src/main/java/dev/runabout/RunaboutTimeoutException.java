@@ -0,0 +1,14 @@
+package dev.runabout;
+
+/**
+ * Exception thrown when a scenario could not be serialized within its time budget.
+ * See {@link RunaboutServiceBuilder#setScenarioTimeout(java.time.Duration)}.
+ */
+public class RunaboutTimeoutException extends RunaboutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RunaboutTimeoutException(String message) {
+        super(message);
+    }
+}
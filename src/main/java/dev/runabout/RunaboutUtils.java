@@ -14,19 +14,14 @@ public class RunaboutUtils {
     }
 
     /**
-     * Escapes quotes in a string 3 layers deep.
+     * Escapes a string for use between the quotes of a Java string literal. Backslashes and quotes are escaped, so
+     * quotes that were already escaped gain a layer, and control characters and lone surrogates are escaped too.
      *
      * @param input The input string.
      * @return The input string with quotes escaped.
      */
     public static String escapeQuotesOneLayer(final String input) {
-        return input
-                // go from 3 to 7 escapes
-                .replaceAll("(?<!\\\\)\\\\\\\\\\\\\\\"","\\\\\\\\\\\\\\\\\\\\\\\\\\\\\"")
-                // go from 1 to 3 escapes
-                .replaceAll("(?<!\\\\)\\\\\\\"", "\\\\\\\\\\\\\"")
-                // go from 0 to 1 escape
-                .replaceAll("(?<!\\\\)\\\"", "\\\\\"");
+        return StringEscaper.escapeJava(input);
     }
 
     /**
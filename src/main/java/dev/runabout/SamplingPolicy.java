@@ -0,0 +1,53 @@
+package dev.runabout;
+
+import java.time.Duration;
+
+/**
+ * Policy for deciding which calls to {@link RunaboutService#saveScenario(String, JsonObject, Object...)} capture a
+ * scenario. The decision is made before the caller method is resolved or any object is serialized, so a call that
+ * is not sampled does almost no work. Implementations must be thread safe and should be cheap.
+ * By default, every call is sampled. See {@link RunaboutServiceBuilder#setSamplingPolicy(SamplingPolicy)}.
+ */
+@FunctionalInterface
+public interface SamplingPolicy {
+
+    /**
+     * Decides whether the current call should capture a scenario.
+     *
+     * @return True if the scenario should be captured.
+     */
+    boolean sample();
+
+    /**
+     * Creates a policy that samples each call independently with the given probability.
+     *
+     * @param rate The probability of sampling a call, between 0 and 1.
+     * @return The SamplingPolicy.
+     */
+    static SamplingPolicy probabilistic(final double rate) {
+        return new ProbabilisticSamplingPolicy(rate);
+    }
+
+    /**
+     * Creates a token bucket policy that samples at most the given number of calls per second on average, allowing
+     * short bursts of up to the given size.
+     *
+     * @param permitsPerSecond The average number of calls to sample per second.
+     * @param burst            The maximum number of calls to sample at once, at least 1.
+     * @return The SamplingPolicy.
+     */
+    static SamplingPolicy rateLimited(final double permitsPerSecond, final int burst) {
+        return new RateLimitedSamplingPolicy(permitsPerSecond, burst);
+    }
+
+    /**
+     * Creates a policy that samples the first calls of every fixed time window.
+     *
+     * @param count  The number of calls to sample per window, at least 1.
+     * @param window The length of each window.
+     * @return The SamplingPolicy.
+     */
+    static SamplingPolicy firstPerWindow(final int count, final Duration window) {
+        return new WindowSamplingPolicy(count, window);
+    }
+}
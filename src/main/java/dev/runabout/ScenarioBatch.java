@@ -0,0 +1,80 @@
+package dev.runabout;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The encoded scenarios sent in a single ingest request, in the same {@code {"scenarios":[...]}} format as a
+ * JsonObject with a list of scenarios. The body is written directly from the encoded scenarios instead of through a
+ * JsonObject envelope.
+ */
+final class ScenarioBatch {
+
+    private static final byte[] PREFIX = ("{\"" + RunaboutConstants.SCENARIOS_KEY + "\":[")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    private final List<byte[]> scenarios = new ArrayList<>();
+    private final int maxBytes;
+
+    private long bytes = PREFIX.length + SUFFIX.length;
+
+    ScenarioBatch(final int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Encodes a scenario as it is written in a batch.
+     *
+     * @param scenario The scenario to encode.
+     * @return The UTF-8 JSON of the scenario.
+     */
+    static byte[] encode(final RunaboutScenario scenario) {
+        return scenario.toJsonObject().toJson().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds an encoded scenario if it fits in the max body size. The first scenario of a batch is always added, so
+     * a scenario larger than the max body size is sent on its own.
+     *
+     * @param scenario The encoded scenario.
+     * @return False if the scenario would make the body exceed the max body size.
+     */
+    boolean add(final byte[] scenario) {
+        final long added = scenarios.isEmpty() ? scenario.length : scenario.length + 1;
+        if (!scenarios.isEmpty() && bytes + added > maxBytes) {
+            return false;
+        }
+        scenarios.add(scenario);
+        bytes += added;
+        return true;
+    }
+
+    int size() {
+        return scenarios.size();
+    }
+
+    boolean isEmpty() {
+        return scenarios.isEmpty();
+    }
+
+    /**
+     * @return The request body, in a single array of the exact size.
+     */
+    byte[] toBody() {
+        final byte[] body = new byte[(int) bytes];
+        System.arraycopy(PREFIX, 0, body, 0, PREFIX.length);
+        int position = PREFIX.length;
+        for (int i = 0; i < scenarios.size(); i++) {
+            if (i > 0) {
+                body[position++] = ',';
+            }
+            final byte[] scenario = scenarios.get(i);
+            System.arraycopy(scenario, 0, body, position, scenario.length);
+            position += scenario.length;
+        }
+        System.arraycopy(SUFFIX, 0, body, position, SUFFIX.length);
+        return body;
+    }
+}
@@ -0,0 +1,128 @@
+package dev.runabout;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drops scenarios that repeat a scenario seen within a time window. Scenarios are identified by a 64-bit
+ * fingerprint of the method and the type, eval and dependencies of each instance, so scenarios that differ only by
+ * datetime, event ID or properties are considered repeats. Repeats are counted on the first occurrence, which
+ * includes the count if it has not been sent yet. The table only keeps the repeat counter of the first occurrence,
+ * not the scenario itself, so sent scenarios are not kept alive for the window.
+ * <p>
+ * The table is split into stripes by fingerprint, each with its own lock, so producers checking different scenarios
+ * rarely contend. Each stripe holds its share of the max entries, and forgets its oldest fingerprints first when it
+ * is full.
+ */
+class ScenarioDeduplicator {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int MAX_STRIPES = 16;
+
+    private final long windowNanos;
+    private final Stripe[] stripes;
+
+    ScenarioDeduplicator(final Duration window, final int maxEntries) {
+        this.windowNanos = window.toNanos();
+        this.stripes = new Stripe[Math.min(MAX_STRIPES, Integer.highestOneBit(maxEntries))];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(maxEntries / stripes.length + (i < maxEntries % stripes.length ? 1 : 0));
+        }
+    }
+
+    /**
+     * Checks whether a scenario repeats one seen within the window. If it does, the repeat is counted on the
+     * first occurrence. Otherwise, the scenario is recorded as a first occurrence.
+     *
+     * @param scenario The scenario to check.
+     * @return True if the scenario is a repeat and should be dropped.
+     */
+    boolean isRepeat(final RunaboutScenario scenario) {
+        final long fingerprint = fingerprint(scenario);
+        final long now = System.nanoTime();
+
+        final Stripe stripe = stripes[(int) (fingerprint ^ (fingerprint >>> 32)) & (stripes.length - 1)];
+        final AtomicInteger repeats;
+        synchronized (stripe) {
+            stripe.evictExpired(now);
+
+            final Entry entry = stripe.entries.get(fingerprint);
+            if (entry == null) {
+                stripe.add(fingerprint, new Entry(scenario.getRepeatCounter(), now + windowNanos));
+                return false;
+            }
+            repeats = entry.repeats;
+        }
+        repeats.incrementAndGet();
+        return true;
+    }
+
+    static long fingerprint(final RunaboutScenario scenario) {
+        long hash = hash(FNV_OFFSET_BASIS, scenario.getMethod());
+        for (final RunaboutInstance instance : scenario.getInstances()) {
+            hash = hash(hash, instance.getType());
+            hash = hash(hash, instance.getEval());
+
+            // Dependencies are a set, so combine them independent of iteration order.
+            long dependencies = 0;
+            for (final String dependency : instance.getDependencies()) {
+                dependencies += hash(FNV_OFFSET_BASIS, dependency);
+            }
+            hash = (hash ^ dependencies) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, final String value) {
+        if (value == null) {
+            return (hash ^ 0xff) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // Mark the end of the value so adjacent values can't run together.
+        return (hash ^ 0xfe) * FNV_PRIME;
+    }
+
+    private static class Stripe {
+
+        private final int maxEntries;
+
+        // Insertion ordered, so the entries that expire first are always at the head.
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+
+        private Stripe(final int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        private void add(final long fingerprint, final Entry entry) {
+            if (entries.size() >= maxEntries) {
+                final Iterator<Entry> iterator = entries.values().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+            entries.put(fingerprint, entry);
+        }
+
+        private void evictExpired(final long now) {
+            final Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext() && now - iterator.next().expiresAt >= 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final AtomicInteger repeats;
+        private final long expiresAt;
+
+        private Entry(final AtomicInteger repeats, final long expiresAt) {
+            this.repeats = repeats;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
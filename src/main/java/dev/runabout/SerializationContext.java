@@ -0,0 +1,301 @@
+package dev.runabout;
+
+import dev.runabout.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State shared by a single serialization pass, either one call to {@link RunaboutService#serialize(Object)} or one
+ * scenario. Objects are tracked by identity, so an object reachable through many paths is only serialized once per
+ * pass and its input is reused, and an object that is reached again while it is still being serialized is detected
+ * as a cycle. Inputs are only reused where they don't depend on the budgets left when they were serialized: not
+ * when anything in them was truncated or cut short by a cycle, and not deeper than they were serialized at.
+ * The eval of a reused input is still written out at every path it is reached through.
+ * The context also tracks the pass against its {@link SerializationLimits}.
+ * <p>
+ * Parts of a pass serialized in parallel each get a fork of the context. A fork sees the inputs and ancestors of its
+ * parent, which is blocked while its forks run, and gets a share of the remaining eval length budget. Joining a fork
+ * charges the parent with what the fork produced.
+ */
+class SerializationContext {
+
+    // Allocated on the first tracked object, since many passes only serialize leaf values.
+    @Nullable
+    private Map<Object, Serialized> serialized;
+    @Nullable
+    private Set<Object> inProgress;
+    private final SerializationLimits limits;
+
+    @Nullable
+    private final SerializationContext parent;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final long instanceStart;
+    private final long scenarioStart;
+
+    private int depth;
+    private int truncations;
+    private long instanceEvalLength;
+    private long scenarioEvalLength;
+    private boolean timedOut;
+
+    SerializationContext() {
+        this(SerializationLimits.UNLIMITED);
+    }
+
+    SerializationContext(final SerializationLimits limits) {
+        this(limits, limits.getTimeout());
+    }
+
+    /**
+     * @param limits  The limits of the pass.
+     * @param timeout The time budget of the pass, overriding the timeout of the limits, or null for none.
+     */
+    SerializationContext(final SerializationLimits limits, @Nullable final Duration timeout) {
+        this.limits = limits;
+        this.parent = null;
+        this.hasDeadline = timeout != null;
+        this.deadline = hasDeadline ? System.nanoTime() + timeout.toNanos() : 0;
+        this.instanceStart = 0;
+        this.scenarioStart = 0;
+    }
+
+    private SerializationContext(final SerializationContext parent, final long instanceShare,
+                                 final long scenarioShare) {
+        this.limits = parent.limits;
+        this.parent = parent;
+        this.hasDeadline = parent.hasDeadline;
+        this.deadline = parent.deadline;
+        this.depth = parent.depth;
+        this.timedOut = parent.timedOut;
+        this.instanceEvalLength = limits.getMaxInstanceEvalLength() - instanceShare;
+        this.scenarioEvalLength = limits.getMaxScenarioEvalLength() - scenarioShare;
+        this.instanceStart = instanceEvalLength;
+        this.scenarioStart = scenarioEvalLength;
+    }
+
+    /**
+     * Forks the context for one of several parts of a value serialized in parallel. Each fork gets an even share of
+     * the remaining instance and scenario budgets.
+     *
+     * @param parts The number of forks.
+     * @return The fork.
+     */
+    SerializationContext fork(final int parts) {
+        return new SerializationContext(this, (limits.getMaxInstanceEvalLength() - instanceEvalLength) / parts,
+                (limits.getMaxScenarioEvalLength() - scenarioEvalLength) / parts);
+    }
+
+    /**
+     * Forks the context for one of several instances of a scenario serialized in parallel. Each fork gets the full
+     * instance budget and an even share of the remaining scenario budget.
+     *
+     * @param parts The number of forks.
+     * @return The fork.
+     */
+    SerializationContext forkInstance(final int parts) {
+        return new SerializationContext(this, limits.getMaxInstanceEvalLength(),
+                (limits.getMaxScenarioEvalLength() - scenarioEvalLength) / parts);
+    }
+
+    /**
+     * Charges the context with the eval characters produced by a fork, once the fork is done.
+     *
+     * @param fork The fork to join.
+     */
+    void join(final SerializationContext fork) {
+        truncations += fork.truncations;
+        instanceEvalLength += fork.instanceEvalLength - fork.instanceStart;
+        scenarioEvalLength += fork.scenarioEvalLength - fork.scenarioStart;
+    }
+
+    SerializationLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Whether an object should be tracked by identity. Immutable leaf values can't contain cycles and are cheaper
+     * to serialize again than to track.
+     *
+     * @param object The non-null object to check.
+     * @return True if the object should be tracked.
+     */
+    static boolean isTracked(final Object object) {
+        return !(object instanceof String || object instanceof Number || object instanceof Boolean ||
+                object instanceof Character || object instanceof Enum<?>);
+    }
+
+    /**
+     * Whether objects of a class should be tracked by identity, see {@link #isTracked(Object)}.
+     *
+     * @param type The class to check.
+     * @return True if objects of the class should be tracked.
+     */
+    static boolean isTracked(final Class<?> type) {
+        return !(type == String.class || Number.class.isAssignableFrom(type) || type == Boolean.class ||
+                type == Character.class || Enum.class.isAssignableFrom(type));
+    }
+
+    /**
+     * Gets the input an object was already serialized to in this pass, if it can be reused at the current depth.
+     *
+     * @param object The object to look up.
+     * @return The previous input, or null if the object has not been serialized yet or can't be reused here.
+     */
+    @Nullable
+    RunaboutInput getSerialized(final Object object) {
+        return getSerialized(object, depth);
+    }
+
+    @Nullable
+    private RunaboutInput getSerialized(final Object object, final int atDepth) {
+        final Serialized entry = serialized == null ? null : serialized.get(object);
+        if (entry == null) {
+            return parent != null ? parent.getSerialized(object, atDepth) : null;
+        }
+        // Deeper than it was serialized at, the input could nest past the max depth.
+        return atDepth <= entry.depth ? entry.input : null;
+    }
+
+    /**
+     * Marks an object as being serialized.
+     *
+     * @param object The object to mark.
+     * @return False if the object is already being serialized, meaning the object graph has a cycle.
+     */
+    boolean enter(final Object object) {
+        if (inProgress == null) {
+            inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        if (!isAncestor(object) && inProgress.add(object)) {
+            depth++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isAncestor(final Object object) {
+        return parent != null && ((parent.inProgress != null && parent.inProgress.contains(object)) ||
+                parent.isAncestor(object));
+    }
+
+    /**
+     * Marks an object as serialized and records its input for reuse.
+     *
+     * @param object The object that was serialized.
+     * @param input  The input it was serialized to, or null if it must not be reused.
+     */
+    void exit(final Object object, @Nullable final RunaboutInput input) {
+        depth--;
+        inProgress.remove(object);
+        if (input != null) {
+            if (serialized == null) {
+                serialized = new IdentityHashMap<>();
+            }
+            serialized.put(object, new Serialized(input, depth));
+        }
+    }
+
+    /**
+     * Records that a value was truncated or cut short by a cycle, so inputs containing it are not reused.
+     */
+    void markTruncated() {
+        truncations++;
+    }
+
+    /**
+     * Gets the number of truncations so far, to tell whether an input contains any.
+     *
+     * @return The number of truncations.
+     */
+    int getTruncations() {
+        return truncations;
+    }
+
+    /**
+     * Whether entering another nested object would exceed the maximum depth.
+     *
+     * @return True if nested objects should be truncated.
+     */
+    boolean isMaxDepth() {
+        return depth >= limits.getMaxDepth();
+    }
+
+    /**
+     * Starts a new instance of a scenario, resetting the per instance budget. Recorded inputs have nothing truncated
+     * in them, so they stay valid for the new instance.
+     */
+    void startInstance() {
+        instanceEvalLength = 0;
+    }
+
+    /**
+     * Gets the eval characters charged against the current instance.
+     *
+     * @return The number of eval characters produced.
+     */
+    long getEvalLength() {
+        return instanceEvalLength;
+    }
+
+    /**
+     * Records eval characters produced by a serializer against the instance and scenario budgets.
+     *
+     * @param input The input that was produced.
+     */
+    void charge(final RunaboutInput input) {
+        final int length = CompositeInput.evalLength(input);
+        instanceEvalLength += length;
+        scenarioEvalLength += length;
+    }
+
+    /**
+     * Gets how many more eval characters can be produced before the instance or scenario budget is used up.
+     * Serializers that write many values without nesting, like primitive arrays, use it to stop early.
+     *
+     * @return The remaining number of eval characters.
+     */
+    long getRemainingEvalLength() {
+        return Math.min(limits.getMaxInstanceEvalLength() - instanceEvalLength,
+                limits.getMaxScenarioEvalLength() - scenarioEvalLength);
+    }
+
+    /**
+     * Whether the instance or scenario eval length budget is used up, or the time budget has passed.
+     * Once it is, values should be truncated instead of serialized.
+     *
+     * @return True if no more values should be serialized.
+     */
+    boolean isExhausted() {
+        return instanceEvalLength >= limits.getMaxInstanceEvalLength() ||
+                scenarioEvalLength >= limits.getMaxScenarioEvalLength() ||
+                isTimedOut();
+    }
+
+    /**
+     * Whether the time budget of the pass has passed. Once it has, the pass should be abandoned.
+     *
+     * @return True if the pass is out of time.
+     */
+    boolean isTimedOut() {
+        if (!timedOut && hasDeadline && System.nanoTime() - deadline >= 0) {
+            timedOut = true;
+        }
+        return timedOut;
+    }
+
+    private static final class Serialized {
+
+        private final RunaboutInput input;
+        private final int depth;
+
+        private Serialized(final RunaboutInput input, final int depth) {
+            this.input = input;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.runabout;
+
+import dev.runabout.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Budgets that bound the work done serializing a single instance or scenario. When a budget is hit, the remaining
+ * values are replaced with a truncation marker instead of being serialized. See {@link RunaboutServiceBuilder} for
+ * the setters of each budget.
+ */
+class SerializationLimits {
+
+    static final SerializationLimits UNLIMITED = new SerializationLimits(Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Long.MAX_VALUE, Long.MAX_VALUE, null);
+
+    private final int maxDepth;
+    private final int maxElements;
+    private final long maxInstanceEvalLength;
+    private final long maxScenarioEvalLength;
+
+    @Nullable
+    private final Duration timeout;
+
+    SerializationLimits(final int maxDepth, final int maxElements, final long maxInstanceEvalLength,
+                        final long maxScenarioEvalLength, @Nullable final Duration timeout) {
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+        this.maxInstanceEvalLength = maxInstanceEvalLength;
+        this.maxScenarioEvalLength = maxScenarioEvalLength;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return The maximum number of nested objects, collections and maps to serialize.
+     */
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return The maximum number of elements to serialize per collection or map.
+     */
+    int getMaxElements() {
+        return maxElements;
+    }
+
+    /**
+     * @return The maximum number of eval characters to produce per instance.
+     */
+    long getMaxInstanceEvalLength() {
+        return maxInstanceEvalLength;
+    }
+
+    /**
+     * @return The maximum number of eval characters to produce per scenario.
+     */
+    long getMaxScenarioEvalLength() {
+        return maxScenarioEvalLength;
+    }
+
+    /**
+     * @return The time budget for serializing a scenario, or null if there is none.
+     */
+    @Nullable
+    Duration getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,347 @@
+package dev.runabout;
+
+import dev.runabout.annotations.Nullable;
+import dev.runabout.annotations.RunaboutEnabled;
+import dev.runabout.annotations.RunaboutParameter;
+import dev.runabout.annotations.ToRunabout;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The resolved strategy for serializing instances of a single class with an instance serializer.
+ * Plans are computed once per class and cached in a {@link ClassValue}, so the reflection needed to find
+ * {@link RunaboutEnabled} constructors and {@link ToRunabout} methods only runs the first time a class is seen.
+ * Fields and methods are compiled to {@link MethodHandle}s, which avoids the access checks and argument array
+ * of core reflection on each call and can be inlined by the JIT. If the class has a {@link GeneratedSerializer}
+ * from the annotation processor, it is used instead and no reflection over the class is needed at all.
+ */
+class SerializationPlan {
+
+    /**
+     * The instance serializer strategy that applies to a class.
+     */
+    enum Strategy {
+        GENERATED,
+        RUNABOUT_ENABLED,
+        TO_RUNABOUT,
+        NONE
+    }
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType TO_RUNABOUT_TYPE = MethodType.methodType(RunaboutInput.class, Object.class);
+
+    private static final ClassValue<SerializationPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected SerializationPlan computeValue(final Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private final Strategy strategy;
+    private final String typeName;
+    private final String simpleName;
+    private final Set<String> dependencies;
+
+    @Nullable
+    private final List<Field> fields;
+
+    @Nullable
+    private final List<MethodHandle> getters;
+
+    @Nullable
+    private final Method method;
+
+    @Nullable
+    private final MethodHandle methodHandle;
+
+    @Nullable
+    private final GeneratedSerializer<Object> generated;
+
+    @Nullable
+    private final Throwable error;
+
+    private SerializationPlan(final Strategy strategy,
+                              final Class<?> clazz,
+                              @Nullable final GeneratedSerializer<Object> generated,
+                              @Nullable final List<Field> fields,
+                              @Nullable final List<MethodHandle> getters,
+                              @Nullable final Method method,
+                              @Nullable final MethodHandle methodHandle,
+                              @Nullable final Throwable error) {
+        this.strategy = strategy;
+        this.typeName = clazz.isAnonymousClass() ? getAnonymousImplClass(clazz) : clazz.getCanonicalName();
+        this.simpleName = clazz.getSimpleName();
+        this.dependencies = DependencySet.of(clazz);
+        this.generated = generated;
+        this.fields = fields;
+        this.getters = getters;
+        this.method = method;
+        this.methodHandle = methodHandle;
+        this.error = error;
+    }
+
+    /**
+     * Gets the cached plan for a class, computing it on first access.
+     *
+     * @param clazz The runtime class of the object being serialized.
+     * @return The plan for the class.
+     */
+    static SerializationPlan forClass(final Class<?> clazz) {
+        return PLANS.get(clazz);
+    }
+
+    Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Gets the type name recorded in a {@link RunaboutInstance}. Anonymous classes are recorded as the
+     * interface/class they implement or extend.
+     *
+     * @return The canonical type name.
+     */
+    String getTypeName() {
+        return typeName;
+    }
+
+    String getSimpleName() {
+        return simpleName;
+    }
+
+    Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Gets the generated serializer for a {@link Strategy#GENERATED} plan.
+     *
+     * @return The generated serializer, or null for other strategies.
+     */
+    @Nullable
+    GeneratedSerializer<Object> getGenerated() {
+        return generated;
+    }
+
+    /**
+     * Gets the fields to serialize for a {@link Strategy#RUNABOUT_ENABLED} plan, ordered by constructor parameter.
+     *
+     * @return The ordered fields, or null for other strategies.
+     */
+    @Nullable
+    List<Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * Gets the compiled field getters for a {@link Strategy#RUNABOUT_ENABLED} plan, in the same order as
+     * {@link #getFields()}. Each getter has the type {@code (Object)Object}.
+     *
+     * @return The ordered getters, or null for other strategies.
+     */
+    @Nullable
+    List<MethodHandle> getGetters() {
+        return getters;
+    }
+
+    /**
+     * Gets the annotated method for a {@link Strategy#TO_RUNABOUT} plan.
+     *
+     * @return The method, or null for other strategies.
+     */
+    @Nullable
+    Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the compiled annotated method for a {@link Strategy#TO_RUNABOUT} plan.
+     * The handle has the type {@code (Object)RunaboutInput}.
+     *
+     * @return The method handle, or null for other strategies.
+     */
+    @Nullable
+    MethodHandle getMethodHandle() {
+        return methodHandle;
+    }
+
+    /**
+     * Gets the error encountered resolving a {@link RunaboutEnabled} constructor, if any. The error is reported
+     * to the listener on each serialization, and the plan falls back to the next applicable strategy.
+     *
+     * @return The error, or null if the class was resolved without error.
+     */
+    @Nullable
+    Throwable getError() {
+        return error;
+    }
+
+    private static SerializationPlan create(final Class<?> clazz) {
+
+        //
+        // JDK classes and arrays can't declare Runabout annotations, skip the reflection for them entirely.
+        // This is the common case, most captured objects are strings, boxed primitives and collections.
+        //
+        if (clazz.isArray() || isJdkClass(clazz)) {
+            return new SerializationPlan(Strategy.NONE, clazz, null, null, null, null, null, null);
+        }
+
+        Throwable error = null;
+
+        //
+        // Try a serializer generated by the annotation processor.
+        //
+        try {
+            final GeneratedSerializer<Object> generated = findGeneratedSerializer(clazz);
+            if (generated != null) {
+                return new SerializationPlan(Strategy.GENERATED, clazz, generated, null, null, null, null, null);
+            }
+        } catch (Throwable t) {
+            error = t;
+        }
+
+        //
+        // Try RunaboutEnabled annotated constructors
+        //
+        try {
+            final List<Field> fields = resolveRunaboutEnabledFields(clazz);
+            if (fields != null) {
+                final List<MethodHandle> getters = unreflectGetters(fields);
+                return new SerializationPlan(Strategy.RUNABOUT_ENABLED, clazz, null, fields, getters, null, null, null);
+            }
+        } catch (Throwable t) {
+            error = Optional.ofNullable(error).orElse(t);
+        }
+
+        //
+        // Try ToRunabout annotated methods, walking up the class hierarchy until the JDK classes it extends.
+        //
+        try {
+            Class<?> current = clazz;
+            while (current != null && !isJdkClass(current)) {
+                final Method method = findToRunaboutMethod(current);
+                if (method != null) {
+                    method.setAccessible(true);
+                    final MethodHandle methodHandle = MethodHandles.lookup().unreflect(method)
+                            .asType(TO_RUNABOUT_TYPE);
+                    return new SerializationPlan(Strategy.TO_RUNABOUT, clazz, null, null, null, method, methodHandle,
+                            error);
+                }
+                current = current.getSuperclass();
+            }
+        } catch (Throwable t) {
+            error = Optional.ofNullable(error).orElse(t);
+        }
+
+        return new SerializationPlan(Strategy.NONE, clazz, null, null, null, null, null, error);
+    }
+
+    private static List<MethodHandle> unreflectGetters(final List<Field> fields) throws IllegalAccessException {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final MethodHandle[] getters = new MethodHandle[fields.size()];
+        for (int i = 0; i < getters.length; i++) {
+            getters[i] = lookup.unreflectGetter(fields.get(i)).asType(GETTER_TYPE);
+        }
+        return List.of(getters);
+    }
+
+    //
+    // Suppress warnings for unchecked cast to GeneratedSerializer<Object>. The processor generates the serializer
+    // for exactly this class, so it only ever receives instances of it.
+    //
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static GeneratedSerializer<Object> findGeneratedSerializer(final Class<?> clazz)
+            throws ReflectiveOperationException {
+
+        final Class<?> generatedClass;
+        try {
+            generatedClass = Class.forName(GeneratedSerializer.getGeneratedClassName(clazz), true,
+                    clazz.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        if (!GeneratedSerializer.class.isAssignableFrom(generatedClass)) {
+            return null;
+        }
+
+        return (GeneratedSerializer<Object>) generatedClass.getDeclaredConstructor().newInstance();
+    }
+
+    @Nullable
+    private static List<Field> resolveRunaboutEnabledFields(final Class<?> clazz) {
+
+        final Constructor<?> constructor = Arrays.stream(clazz.getConstructors())
+                .filter(c -> c.isAnnotationPresent(RunaboutEnabled.class))
+                .findFirst().orElse(null);
+
+        if (constructor == null) {
+            return null;
+        }
+
+        final Parameter[] parameters = constructor.getParameters();
+        final String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            final Parameter parameter = parameters[i];
+            if (!parameter.isAnnotationPresent(RunaboutParameter.class)) {
+                throw new RuntimeException("RunaboutEnabled constructor parameters must be " +
+                        "annotated with RunaboutParameter. Parameter: [" + parameter.getName() +
+                        "] in class: [" + clazz.getCanonicalName() + "] is not annotated.");
+            }
+            names[i] = parameter.getAnnotation(RunaboutParameter.class).value();
+        }
+
+        final Map<String, Field> declaredFields = new HashMap<>();
+        for (final Field field : clazz.getDeclaredFields()) {
+            declaredFields.put(field.getName(), field);
+        }
+
+        final Field[] fields = new Field[names.length];
+        for (int i = 0; i < names.length; i++) {
+            final Field field = declaredFields.get(names[i]);
+            if (field == null) {
+                // No field to populate the parameter with, the constructor can't be used.
+                return null;
+            }
+            field.setAccessible(true);
+            fields[i] = field;
+        }
+
+        return List.of(fields);
+    }
+
+    @Nullable
+    private static Method findToRunaboutMethod(final Class<?> clazz) {
+        return Arrays.stream(clazz.getDeclaredMethods())
+                .filter(method -> method.isAnnotationPresent(ToRunabout.class))
+                .findFirst()
+                .or(() -> Arrays.stream(clazz.getMethods())
+                        .filter(method -> method.isAnnotationPresent(ToRunabout.class))
+                        .findFirst())
+                .orElse(null);
+    }
+
+    private static boolean isJdkClass(final Class<?> clazz) {
+        final ClassLoader classLoader = clazz.getClassLoader();
+        return classLoader == null || classLoader == ClassLoader.getPlatformClassLoader();
+    }
+
+    private static String getAnonymousImplClass(final Class<?> clazz) {
+        return Optional.ofNullable(clazz)
+                .map(c -> c.getInterfaces().length > 0 ? c.getInterfaces()[0] : c.getSuperclass())
+                .map(Class::getCanonicalName)
+                .orElse("null");
+    }
+}
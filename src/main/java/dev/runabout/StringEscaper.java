@@ -0,0 +1,163 @@
+package dev.runabout;
+
+/**
+ * Single pass escaping of strings for Java string literals and JSON strings. Characters that need no escaping are
+ * copied to the target in runs, and a string that needs no escaping at all is returned or appended as is.
+ * <p>
+ * Both modes escape backslashes, double quotes and control characters. Valid surrogate pairs are kept as they are,
+ * since they encode as UTF-8, while lone surrogates, which don't, are written as unicode escapes.
+ */
+final class StringEscaper {
+
+    private StringEscaper() {
+        // Static access only.
+    }
+
+    /**
+     * Escapes a string for use between the quotes of a Java string literal.
+     *
+     * @param input The string to escape.
+     * @return The escaped string, or the input itself if it needs no escaping.
+     */
+    static String escapeJava(final String input) {
+        final int first = firstEscape(input, false);
+        if (first == input.length()) {
+            return input;
+        }
+        return escape(input, first, new StringBuilder(input.length() + 16), false).toString();
+    }
+
+    /**
+     * Appends a string escaped for use between the quotes of a Java string literal.
+     *
+     * @param input  The string to escape.
+     * @param target The builder to append to.
+     * @return The target.
+     */
+    static StringBuilder escapeJava(final String input, final StringBuilder target) {
+        return escape(input, firstEscape(input, false), target, false);
+    }
+
+    /**
+     * Escapes a string for use between the quotes of a JSON string.
+     *
+     * @param input The string to escape.
+     * @return The escaped string, or the input itself if it needs no escaping.
+     */
+    static String escapeJson(final String input) {
+        final int first = firstEscape(input, true);
+        if (first == input.length()) {
+            return input;
+        }
+        return escape(input, first, new StringBuilder(input.length() + 16), true).toString();
+    }
+
+    /**
+     * Appends a string escaped for use between the quotes of a JSON string.
+     *
+     * @param input  The string to escape.
+     * @param target The builder to append to.
+     * @return The target.
+     */
+    static StringBuilder escapeJson(final String input, final StringBuilder target) {
+        return escape(input, firstEscape(input, true), target, true);
+    }
+
+    private static int firstEscape(final String input, final boolean json) {
+        final int length = input.length();
+        for (int i = 0; i < length; i++) {
+            final char c = input.charAt(i);
+            if (needsEscape(c, json) && (!Character.isSurrogate(c) || isLoneSurrogate(input, i))) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    //
+    // Copies the run of characters before each escape in one append. Surrogates are rare enough to check for pairs
+    // only once one is found.
+    //
+    private static StringBuilder escape(final String input, final int first, final StringBuilder target,
+                                        final boolean json) {
+
+        final int length = input.length();
+        target.append(input, 0, first);
+
+        int run = first;
+        for (int i = first; i < length; i++) {
+            final char c = input.charAt(i);
+            if (!needsEscape(c, json)) {
+                continue;
+            }
+            if (Character.isSurrogate(c) && !isLoneSurrogate(input, i)) {
+                // Skip the low half of a valid pair along with the high half.
+                i++;
+                continue;
+            }
+            target.append(input, run, i);
+            appendEscape(c, target, json);
+            run = i + 1;
+        }
+
+        return target.append(input, run, length);
+    }
+
+    private static boolean needsEscape(final char c, final boolean json) {
+        return c < 0x20 || c == '"' || c == '\\' || (c == 0x7f && !json) || Character.isSurrogate(c);
+    }
+
+    private static boolean isLoneSurrogate(final String input, final int index) {
+        final char c = input.charAt(index);
+        if (Character.isHighSurrogate(c)) {
+            return index + 1 == input.length() || !Character.isLowSurrogate(input.charAt(index + 1));
+        }
+        return index == 0 || !Character.isHighSurrogate(input.charAt(index - 1));
+    }
+
+    //
+    // Java control characters use three digit octal escapes, since a unicode escape of a line terminator is not a
+    // valid literal and a shorter octal escape could absorb a digit that follows it.
+    //
+    private static void appendEscape(final char c, final StringBuilder target, final boolean json) {
+        switch (c) {
+            case '"':
+                target.append("\\\"");
+                break;
+            case '\\':
+                target.append("\\\\");
+                break;
+            case '\n':
+                target.append("\\n");
+                break;
+            case '\r':
+                target.append("\\r");
+                break;
+            case '\t':
+                target.append("\\t");
+                break;
+            case '\b':
+                target.append("\\b");
+                break;
+            case '\f':
+                target.append("\\f");
+                break;
+            default:
+                if (json || Character.isSurrogate(c)) {
+                    appendUnicode(c, target);
+                } else {
+                    target.append('\\')
+                            .append((char) ('0' + (c >> 6)))
+                            .append((char) ('0' + ((c >> 3) & 7)))
+                            .append((char) ('0' + (c & 7)));
+                }
+        }
+    }
+
+    private static void appendUnicode(final char c, final StringBuilder target) {
+        target.append("\\u");
+        for (int shift = 12; shift >= 0; shift -= 4) {
+            target.append(Character.forDigit((c >> shift) & 0xf, 16));
+        }
+    }
+}
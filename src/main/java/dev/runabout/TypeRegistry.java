@@ -0,0 +1,67 @@
+package dev.runabout;
+
+import dev.runabout.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Registry of values by type, where a class gets the value registered for its most specific supertype, including
+ * itself and its interfaces. If unrelated supertypes are equally specific, a class wins over an interface, then the
+ * type registered first. Resolution is cached per class, so lookups are a single ClassValue lookup after the first.
+ *
+ * @param <V> The type of the registered values.
+ */
+class TypeRegistry<V> {
+
+    private final Map<Class<?>, V> values;
+
+    private final ClassValue<Optional<V>> resolved = new ClassValue<>() {
+        @Override
+        protected Optional<V> computeValue(final Class<?> clazz) {
+            return Optional.ofNullable(resolve(clazz));
+        }
+    };
+
+    /**
+     * Creates a registry of the given values.
+     *
+     * @param values The values by type, in registration order.
+     */
+    TypeRegistry(final Map<Class<?>, V> values) {
+        this.values = new LinkedHashMap<>(values);
+    }
+
+    /**
+     * Gets the value for a class.
+     *
+     * @param clazz The class to look up.
+     * @return The value registered for the most specific supertype of the class, or null if there is none.
+     */
+    @Nullable
+    V get(final Class<?> clazz) {
+        return resolved.get(clazz).orElse(null);
+    }
+
+    boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    private V resolve(final Class<?> clazz) {
+        Class<?> best = null;
+        for (final Class<?> type : values.keySet()) {
+            if (type.isAssignableFrom(clazz) && (best == null || isMoreSpecific(type, best))) {
+                best = type;
+            }
+        }
+        return best == null ? null : values.get(best);
+    }
+
+    private static boolean isMoreSpecific(final Class<?> type, final Class<?> than) {
+        if (type.isAssignableFrom(than)) {
+            return false;
+        }
+        return than.isAssignableFrom(type) || than.isInterface() && !type.isInterface();
+    }
+}
@@ -0,0 +1,24 @@
+package dev.runabout;
+
+/**
+ * Serializer for a single type and its subtypes, registered with
+ * {@link RunaboutServiceBuilder#registerSerializer(Class, TypedSerializer)}. The RunaboutService resolves the
+ * serializer for each class once and caches it, so registering many typed serializers costs a single lookup per
+ * object, unlike one {@link RunaboutSerializer} that checks the type of every object.
+ * The implementation should return null if it cannot create a valid RunaboutInput for the given object, in which
+ * case the object is passed on to the custom and default serializers.
+ *
+ * @param <T> The type the serializer serializes.
+ */
+@FunctionalInterface
+public interface TypedSerializer<T> {
+
+    /**
+     * Converts an object to a RunaboutInput.
+     *
+     * @param object     The object to serialize.
+     * @param serializer The serializer to use for objects nested in the object, such as its fields.
+     * @return A RunaboutInput containing a valid Java statement that can be used to recreate the object.
+     */
+    RunaboutInput toRunaboutInput(final T object, final RunaboutSerializer serializer);
+}
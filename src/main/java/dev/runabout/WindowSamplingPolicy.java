@@ -0,0 +1,42 @@
+package dev.runabout;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SamplingPolicy that samples the first calls of every fixed time window. Calls racing with the start of a new
+ * window may be counted against either window.
+ */
+class WindowSamplingPolicy implements SamplingPolicy {
+
+    private final int count;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final AtomicInteger sampled = new AtomicInteger();
+
+    WindowSamplingPolicy(final int count, final Duration window) {
+        Objects.requireNonNull(window, "Window cannot be null.");
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be at least 1.");
+        }
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be greater than zero.");
+        }
+        this.count = count;
+        this.windowNanos = window.toNanos();
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    @Override
+    public boolean sample() {
+        final long now = System.nanoTime();
+        final long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            sampled.set(0);
+        }
+        // Check before incrementing so a long window of rejected calls can't overflow the counter.
+        return sampled.get() < count && sampled.incrementAndGet() <= count;
+    }
+}
@@ -0,0 +1,345 @@
+package dev.runabout.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+/**
+ * Annotation processor for the Runabout annotations.
+ * <br>
+ * The processor validates {@code RunaboutEnabled} constructors, {@code RunaboutParameter} parameters and
+ * {@code ToRunabout} methods, and reports misuse as compile errors instead of errors at runtime.
+ * For each valid class it generates a {@code GeneratedSerializer} that reads fields and calls methods directly.
+ * A serializer is only generated when the class and every member it needs are accessible from the class's package,
+ * otherwise the RunaboutService serializes the class with reflection as before.
+ * <br>
+ * The processor references the Runabout annotations by name, so it does not need the runabout-java classes on the
+ * annotation processor path.
+ */
+@SupportedAnnotationTypes({
+        RunaboutProcessor.RUNABOUT_ENABLED,
+        RunaboutProcessor.RUNABOUT_PARAMETER,
+        RunaboutProcessor.TO_RUNABOUT
+})
+public class RunaboutProcessor extends AbstractProcessor {
+
+    static final String RUNABOUT_ENABLED = "dev.runabout.annotations.RunaboutEnabled";
+    static final String RUNABOUT_PARAMETER = "dev.runabout.annotations.RunaboutParameter";
+    static final String TO_RUNABOUT = "dev.runabout.annotations.ToRunabout";
+
+    private static final String RUNABOUT_INPUT = "dev.runabout.RunaboutInput";
+    private static final String GENERATED_SERIALIZER = "dev.runabout.GeneratedSerializer";
+    private static final String RUNABOUT_SERIALIZER = "dev.runabout.RunaboutSerializer";
+    private static final String CLASS_NAME_SUFFIX = "_RunaboutSerializer";
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+
+        final Set<TypeElement> types = new LinkedHashSet<>();
+
+        for (final TypeElement annotation : annotations) {
+            final String name = annotation.getQualifiedName().toString();
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (RUNABOUT_PARAMETER.equals(name)) {
+                    checkParameterUsage(element);
+                } else if (element.getEnclosingElement() instanceof TypeElement) {
+                    types.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+
+        for (final TypeElement type : types) {
+            processType(type);
+        }
+
+        // Don't claim the annotations, other processors may use them too.
+        return false;
+    }
+
+    private void processType(final TypeElement type) {
+
+        final List<VariableElement> constructorFields = validateRunaboutEnabled(type);
+        final ExecutableElement toRunaboutMethod = validateToRunabout(type);
+
+        if (!isAccessibleFromPackage(type)) {
+            return;
+        }
+
+        if (constructorFields != null && constructorFields.stream().noneMatch(RunaboutProcessor::isPrivate)) {
+            generate(type, runaboutEnabledBody(type, constructorFields));
+        } else if (toRunaboutMethod != null && !isPrivate(toRunaboutMethod)) {
+            generate(type, "        return object." + toRunaboutMethod.getSimpleName() + "();\n");
+        }
+    }
+
+    /**
+     * Validates the RunaboutEnabled constructor of a type.
+     *
+     * @return The fields to pass to the constructor in parameter order, or null if there is no valid constructor.
+     */
+    private List<VariableElement> validateRunaboutEnabled(final TypeElement type) {
+
+        final List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .filter(constructor -> getAnnotation(constructor, RUNABOUT_ENABLED) != null)
+                .collect(Collectors.toList());
+
+        if (constructors.isEmpty()) {
+            return null;
+        }
+
+        boolean valid = true;
+
+        for (final ExecutableElement extra : constructors.subList(1, constructors.size())) {
+            error(extra, "Only one constructor per class can be annotated with RunaboutEnabled. Class: [" +
+                    type.getQualifiedName() + "].");
+            valid = false;
+        }
+
+        final ExecutableElement constructor = constructors.get(0);
+
+        if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+            error(constructor, "RunaboutEnabled constructors must be public. Class: [" +
+                    type.getQualifiedName() + "].");
+            valid = false;
+        }
+
+        final Map<String, VariableElement> declaredFields = new HashMap<>();
+        for (final VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            declaredFields.put(field.getSimpleName().toString(), field);
+        }
+
+        final List<VariableElement> fields = new ArrayList<>();
+
+        for (final VariableElement parameter : constructor.getParameters()) {
+
+            final AnnotationMirror annotation = getAnnotation(parameter, RUNABOUT_PARAMETER);
+            if (annotation == null) {
+                error(parameter, "RunaboutEnabled constructor parameters must be annotated with RunaboutParameter. " +
+                        "Parameter: [" + parameter.getSimpleName() + "] in class: [" + type.getQualifiedName() +
+                        "] is not annotated.");
+                valid = false;
+                continue;
+            }
+
+            final String fieldName = getValue(annotation);
+            final VariableElement field = declaredFields.get(fieldName);
+            if (field == null) {
+                error(parameter, "RunaboutParameter: [" + fieldName + "] does not match a field declared in class: [" +
+                        type.getQualifiedName() + "].");
+                valid = false;
+                continue;
+            }
+
+            if (!processingEnv.getTypeUtils().isAssignable(field.asType(), parameter.asType())) {
+                warning(parameter, "Field: [" + fieldName + "] of type: [" + field.asType() + "] is not assignable " +
+                        "to parameter: [" + parameter.getSimpleName() + "] of type: [" + parameter.asType() + "].");
+            }
+
+            fields.add(field);
+        }
+
+        return valid ? fields : null;
+    }
+
+    /**
+     * Validates the ToRunabout methods declared by a type.
+     *
+     * @return The ToRunabout method, or null if there is no valid method.
+     */
+    private ExecutableElement validateToRunabout(final TypeElement type) {
+
+        final List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements()).stream()
+                .filter(method -> getAnnotation(method, TO_RUNABOUT) != null)
+                .collect(Collectors.toList());
+
+        if (methods.isEmpty()) {
+            return null;
+        }
+
+        boolean valid = true;
+
+        for (final ExecutableElement extra : methods.subList(1, methods.size())) {
+            error(extra, "Only one method per class can be annotated with ToRunabout. Class: [" +
+                    type.getQualifiedName() + "].");
+            valid = false;
+        }
+
+        final ExecutableElement method = methods.get(0);
+        final String description = "ToRunabout method: [" + method.getSimpleName() + "] in class: [" +
+                type.getQualifiedName() + "]";
+
+        if (method.getModifiers().contains(Modifier.STATIC)) {
+            error(method, description + " must be an instance method.");
+            valid = false;
+        }
+
+        if (!method.getParameters().isEmpty()) {
+            error(method, description + " must not take parameters.");
+            valid = false;
+        }
+
+        final TypeElement runaboutInput = processingEnv.getElementUtils().getTypeElement(RUNABOUT_INPUT);
+        if (runaboutInput != null &&
+                !processingEnv.getTypeUtils().isAssignable(method.getReturnType(), runaboutInput.asType())) {
+            error(method, description + " must return " + RUNABOUT_INPUT + ".");
+            valid = false;
+        }
+
+        return valid ? method : null;
+    }
+
+    private void checkParameterUsage(final Element parameter) {
+        final Element executable = parameter.getEnclosingElement();
+        if (executable.getKind() != ElementKind.CONSTRUCTOR || getAnnotation(executable, RUNABOUT_ENABLED) == null) {
+            warning(parameter, "RunaboutParameter is ignored on parameters of methods and constructors " +
+                    "not annotated with RunaboutEnabled.");
+        }
+    }
+
+    private String runaboutEnabledBody(final TypeElement type, final List<VariableElement> fields) {
+        final StringJoiner arguments = new StringJoiner(", ");
+        arguments.add(quote(type.getSimpleName().toString()));
+        arguments.add("DEPENDENCIES");
+        arguments.add("serializer");
+        fields.forEach(field -> arguments.add("object." + field.getSimpleName()));
+        return "        return " + GENERATED_SERIALIZER + ".constructorInput(" + arguments + ");\n";
+    }
+
+    private void generate(final TypeElement type, final String body) {
+
+        final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        // Must match GeneratedSerializer.getGeneratedClassName.
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace("_", "__").replace("$", "_N_") + CLASS_NAME_SUFFIX;
+        final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        if (!generated.add(qualifiedName)) {
+            return;
+        }
+
+        final String typeName = type.getQualifiedName() + wildcards(type);
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Runabout serializer for {@link ").append(type.getQualifiedName()).append("}, generated by ")
+                .append(RunaboutProcessor.class.getName()).append(". Do not edit.\n")
+                .append(" */\n")
+                .append("public final class ").append(simpleName).append(" implements ")
+                .append(GENERATED_SERIALIZER).append("<").append(typeName).append("> {\n\n")
+                .append("    private static final java.util.Set<String> DEPENDENCIES = java.util.Set.of(")
+                .append(quote(type.getQualifiedName().toString())).append(");\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(RUNABOUT_INPUT).append(" toRunaboutInput(final ").append(typeName)
+                .append(" object, final ").append(RUNABOUT_SERIALIZER).append(" serializer) {\n")
+                .append(body)
+                .append("    }\n")
+                .append("}\n");
+
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            error(type, "Failed to generate Runabout serializer: [" + qualifiedName + "]. " + e.getMessage());
+        }
+    }
+
+    private static boolean isAccessibleFromPackage(final TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            final TypeElement typeElement = (TypeElement) element;
+            if (typeElement.getKind() != ElementKind.CLASS || isPrivate(typeElement) ||
+                    (typeElement.getNestingKind() != NestingKind.TOP_LEVEL &&
+                            typeElement.getNestingKind() != NestingKind.MEMBER)) {
+                return false;
+            }
+            element = typeElement.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private static boolean isPrivate(final Element element) {
+        return element.getModifiers().contains(Modifier.PRIVATE);
+    }
+
+    private static String wildcards(final TypeElement type) {
+        if (type.getTypeParameters().isEmpty()) {
+            return "";
+        }
+        return type.getTypeParameters().stream().map(t -> "?").collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private static AnnotationMirror getAnnotation(final Element element, final String annotationName) {
+        for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            final TypeMirror type = mirror.getAnnotationType();
+            if (type.toString().equals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String getValue(final AnnotationMirror annotation) {
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return "";
+    }
+
+    private static String quote(final String string) {
+        return "\"" + string.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private void error(final Element element, final String message) {
+        getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void warning(final Element element, final String message) {
+        getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    private Messager getMessager() {
+        return processingEnv.getMessager();
+    }
+}
@@ -0,0 +1,55 @@
+package dev.runabout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class CircuitBreakerTests {
+
+    @Test
+    void testOpensAndCloses() throws InterruptedException {
+        final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofMillis(50).toNanos());
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        // Failures only count while consecutive.
+        Assertions.assertTrue(breaker.isClosed());
+        Assertions.assertEquals(0, breaker.tryAcquire());
+
+        breaker.onFailure();
+        Assertions.assertFalse(breaker.isClosed());
+        Assertions.assertTrue(breaker.tryAcquire() > 0);
+
+        // A single trial once the open duration has passed, and a failed trial opens the breaker again.
+        Thread.sleep(60);
+        Assertions.assertEquals(0, breaker.tryAcquire());
+        Assertions.assertTrue(breaker.tryAcquire() > 0);
+        breaker.onFailure();
+        Assertions.assertTrue(breaker.tryAcquire() > Duration.ofMillis(10).toNanos());
+
+        Thread.sleep(60);
+        Assertions.assertEquals(0, breaker.tryAcquire());
+        breaker.onSuccess();
+        Assertions.assertTrue(breaker.isClosed());
+        Assertions.assertEquals(0, breaker.tryAcquire());
+    }
+
+    @Test
+    void testHoldFor() throws InterruptedException {
+        final CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMillis(50).toNanos());
+        breaker.holdFor(Duration.ofMillis(200).toNanos());
+        Assertions.assertFalse(breaker.isClosed());
+        Assertions.assertTrue(breaker.tryAcquire() > Duration.ofMillis(150).toNanos());
+
+        // A shorter hold doesn't cut the current one short, and a failure doesn't either.
+        breaker.holdFor(Duration.ofMillis(10).toNanos());
+        breaker.onFailure();
+        Assertions.assertTrue(breaker.tryAcquire() > Duration.ofMillis(100).toNanos());
+
+        Thread.sleep(220);
+        Assertions.assertEquals(0, breaker.tryAcquire());
+        breaker.onSuccess();
+        Assertions.assertTrue(breaker.isClosed());
+    }
+}
@@ -3,12 +3,32 @@ package dev.runabout;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DefaultSerializerTests {
 
@@ -22,6 +42,12 @@ public class DefaultSerializerTests {
         Assertions.assertTrue(runaboutInput.getDependencies().isEmpty());
     }
 
+    @Test
+    void testStringControlCharacters() {
+        final RunaboutInput runaboutInput = DefaultSerializer.getInstance().toRunaboutGeneric("a\\b\nc\u0000");
+        Assertions.assertEquals("\"a\\\\b\\nc\\000\"", runaboutInput.getEval());
+    }
+
     @Test
     void testStringNested1Serializer() {
         final String test = "test:\"String\"";
@@ -89,6 +115,10 @@ public class DefaultSerializerTests {
         runaboutInput = DefaultSerializer.getInstance().toRunaboutGeneric(test2);
         Assertions.assertEquals("(float) 8.4", runaboutInput.getEval());
         Assertions.assertTrue(runaboutInput.getDependencies().isEmpty());
+
+        Assertions.assertEquals("Float.NaN", DefaultSerializer.getInstance().toRunaboutGeneric(Float.NaN).getEval());
+        Assertions.assertEquals("Float.NEGATIVE_INFINITY",
+                DefaultSerializer.getInstance().toRunaboutGeneric(Float.NEGATIVE_INFINITY).getEval());
     }
 
     @Test
@@ -102,6 +132,10 @@ public class DefaultSerializerTests {
         runaboutInput = DefaultSerializer.getInstance().toRunaboutGeneric(test2);
         Assertions.assertEquals("(double) 8.4", runaboutInput.getEval());
         Assertions.assertTrue(runaboutInput.getDependencies().isEmpty());
+
+        Assertions.assertEquals("Double.NaN", DefaultSerializer.getInstance().toRunaboutGeneric(Double.NaN).getEval());
+        Assertions.assertEquals("Double.POSITIVE_INFINITY",
+                DefaultSerializer.getInstance().toRunaboutGeneric(Double.POSITIVE_INFINITY).getEval());
     }
 
     @Test
@@ -302,9 +336,207 @@ public class DefaultSerializerTests {
                 () -> defaultSerializer.toRunaboutGenericRecursive(test, throwsSerializer));
     }
 
+    @Test
+    void testCollectionsTruncatedAtMaxElements() {
+        final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
+        final SerializationContext context = new SerializationContext(
+                new SerializationLimits(Integer.MAX_VALUE, 2, Long.MAX_VALUE, Long.MAX_VALUE, null));
+
+        final List<String> list = List.of("a", "b", "c", "d", "e");
+        final RunaboutInput listInput = defaultSerializer.toRunaboutGenericRecursive(list,
+                defaultSerializer::toRunaboutGeneric, context);
+        Assertions.assertEquals("new ArrayList<>() {{ add(\"a\"); add(\"b\"); /* 3 more truncated by Runabout */ }}",
+                listInput.getEval());
+
+        final Map<String, Integer> map = new HashMap<>();
+        map.put("key1", 1);
+        map.put("key2", 2);
+        map.put("key3", 3);
+        final RunaboutInput mapInput = defaultSerializer.toRunaboutGenericRecursive(map,
+                defaultSerializer::toRunaboutGeneric, context);
+        Assertions.assertTrue(mapInput.getEval().endsWith("/* 1 more truncated by Runabout */ }}"));
+        Assertions.assertTrue(mapInput.getDependencies().contains(HashMap.class.getCanonicalName()));
+    }
+
+    @Test
+    void testPrimitiveArrays() {
+        final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
+
+        Assertions.assertEquals("new int[]{1, -2, 2147483647}",
+                defaultSerializer.toRunaboutGeneric(new int[]{1, -2, Integer.MAX_VALUE}).getEval());
+        Assertions.assertEquals("new long[]{1L, -9223372036854775808L}",
+                defaultSerializer.toRunaboutGeneric(new long[]{1, Long.MIN_VALUE}).getEval());
+        Assertions.assertEquals("new double[]{1.5, Double.NaN, Double.NEGATIVE_INFINITY, 1.0E-10}",
+                defaultSerializer.toRunaboutGeneric(
+                        new double[]{1.5, Double.NaN, Double.NEGATIVE_INFINITY, 1e-10}).getEval());
+        Assertions.assertEquals("new float[]{0.5f, Float.POSITIVE_INFINITY}",
+                defaultSerializer.toRunaboutGeneric(new float[]{0.5f, Float.POSITIVE_INFINITY}).getEval());
+        Assertions.assertEquals("new char[]{'a', '\\'', '\\\\', '\\n', '\\0'}",
+                defaultSerializer.toRunaboutGeneric(new char[]{'a', '\'', '\\', '\n', '\0'}).getEval());
+        Assertions.assertEquals("new boolean[]{}", defaultSerializer.toRunaboutGeneric(new boolean[0]).getEval());
+
+        final RunaboutInput bytes = defaultSerializer.toRunaboutGeneric(new byte[]{0, 1, 2, -1});
+        Assertions.assertEquals("Base64.getDecoder().decode(\"AAEC/w==\")", bytes.getEval());
+        Assertions.assertEquals(Set.of("java.util.Base64"), bytes.getDependencies());
+    }
+
+    @Test
+    void testObjectArrays() {
+        final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
+        final RunaboutSerializer recursive = o -> defaultSerializer.toRunaboutGenericRecursive(o,
+                defaultSerializer::toRunaboutGeneric);
+
+        final RunaboutInput strings = defaultSerializer.toRunaboutGenericRecursive(new String[]{"a", null},
+                recursive);
+        Assertions.assertEquals("new String[]{\"a\", null}", strings.getEval());
+        Assertions.assertEquals(Set.of("java.lang.String"), strings.getDependencies());
+
+        final RunaboutInput nested = defaultSerializer.toRunaboutGenericRecursive(new int[][]{{1}, {2, 3}},
+                recursive);
+        Assertions.assertEquals("new int[][]{new int[]{1}, new int[]{2, 3}}", nested.getEval());
+        Assertions.assertTrue(nested.getDependencies().isEmpty());
+
+        final RunaboutInput objects = defaultSerializer.toRunaboutGenericRecursive(
+                new Object[]{List.of(1), TestEnum.VALUE1}, recursive);
+        Assertions.assertEquals("new Object[]{new ArrayList<>() {{ add((int) 1); }}, " +
+                TestEnum.class.getCanonicalName() + ".VALUE1}", objects.getEval());
+    }
+
+    @Test
+    void testArraysTruncatedAtMaxElements() {
+        final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
+        final SerializationContext context = new SerializationContext(
+                new SerializationLimits(Integer.MAX_VALUE, 2, Long.MAX_VALUE, Long.MAX_VALUE, null));
+
+        Assertions.assertEquals("new int[]{1, 2 /* 3 more truncated by Runabout */}",
+                defaultSerializer.toRunaboutGenericRecursive(new int[]{1, 2, 3, 4, 5},
+                        defaultSerializer::toRunaboutGeneric, context).getEval());
+        Assertions.assertEquals("Base64.getDecoder().decode(\"AAE=\" /* 1 more truncated by Runabout */)",
+                defaultSerializer.toRunaboutGenericRecursive(new byte[]{0, 1, 2},
+                        defaultSerializer::toRunaboutGeneric, context).getEval());
+        Assertions.assertEquals("new String[]{\"a\", \"b\" /* 1 more truncated by Runabout */}",
+                defaultSerializer.toRunaboutGenericRecursive(new String[]{"a", "b", "c"},
+                        defaultSerializer::toRunaboutGeneric, context).getEval());
+    }
+
+    @Test
+    void testValueTypes() {
+        final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
+
+        final RunaboutInput decimal = defaultSerializer.toRunaboutGeneric(new BigDecimal("12.50"));
+        Assertions.assertEquals("new BigDecimal(\"12.50\")", decimal.getEval());
+        Assertions.assertEquals(Set.of("java.math.BigDecimal"), decimal.getDependencies());
+
+        final UUID uuid = UUID.randomUUID();
+        Assertions.assertEquals("UUID.fromString(\"" + uuid + "\")", defaultSerializer.toRunaboutGeneric(uuid).getEval());
+        Assertions.assertEquals("new AtomicLong(5L)", defaultSerializer.toRunaboutGeneric(new AtomicLong(5)).getEval());
+
+        Assertions.assertEquals("Instant.parse(\"2024-06-12T10:15:30Z\")",
+                defaultSerializer.toRunaboutGeneric(Instant.parse("2024-06-12T10:15:30Z")).getEval());
+        Assertions.assertEquals("LocalDate.parse(\"2024-06-12\")",
+                defaultSerializer.toRunaboutGeneric(LocalDate.of(2024, 6, 12)).getEval());
+        Assertions.assertEquals("Duration.parse(\"PT1M\")",
+                defaultSerializer.toRunaboutGeneric(Duration.ofMinutes(1)).getEval());
+        Assertions.assertEquals("ZonedDateTime.parse(\"2024-06-12T10:15:30+02:00[Europe/Paris]\")",
+                defaultSerializer.toRunaboutGeneric(ZonedDateTime.of(2024, 6, 12, 10, 15, 30, 0,
+                        ZoneId.of("Europe/Paris"))).getEval());
+        Assertions.assertEquals("ZoneId.of(\"Europe/Paris\")",
+                defaultSerializer.toRunaboutGeneric(ZoneId.of("Europe/Paris")).getEval());
+    }
+
+    @Test
+    void testContainerTypes() {
+        final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
+        final RunaboutSerializer recursive = o -> defaultSerializer.toRunaboutGenericRecursive(o,
+                defaultSerializer::toRunaboutGeneric);
+
+        final Map<String, Integer> linked = new LinkedHashMap<>();
+        linked.put("z", 1);
+        linked.put("a", 2);
+        Assertions.assertEquals("new LinkedHashMap<>() {{ put(\"z\", (int) 1); put(\"a\", (int) 2); }}",
+                recursive.toRunaboutGeneric(linked).getEval());
+        Assertions.assertEquals("new TreeMap<>() {{ put(\"a\", (int) 2); put(\"z\", (int) 1); }}",
+                recursive.toRunaboutGeneric(new TreeMap<>(linked)).getEval());
+        Assertions.assertEquals("new HashMap<>() {{ put(\"a\", (int) 2); }}",
+                recursive.toRunaboutGeneric(new ConcurrentHashMap<>(Map.of("a", 2))).getEval());
+
+        final Set<String> reversed = new TreeSet<>(Comparator.reverseOrder());
+        reversed.add("a");
+        reversed.add("b");
+        Assertions.assertEquals("new LinkedHashSet<>() {{ add(\"b\"); add(\"a\"); }}",
+                recursive.toRunaboutGeneric(reversed).getEval());
+        Assertions.assertEquals("new ArrayList<>() {{ add(\"a\"); }}",
+                recursive.toRunaboutGeneric(Collections.unmodifiableList(List.of("a"))).getEval());
+
+        final RunaboutInput optional = RunaboutService.getService("test", null).serialize(Optional.of(List.of("a")));
+        Assertions.assertEquals("Optional.of(new ArrayList<>() {{ add(\"a\"); }})", optional.getEval());
+        Assertions.assertEquals(Set.of("java.util.Optional", "java.util.ArrayList"), optional.getDependencies());
+        Assertions.assertEquals("Optional.empty()", recursive.toRunaboutGeneric(Optional.empty()).getEval());
+
+        final String enumName = TestEnum.class.getCanonicalName();
+        Assertions.assertEquals("EnumSet.of(" + enumName + ".VALUE1, " + enumName + ".V_3)",
+                recursive.toRunaboutGeneric(EnumSet.of(TestEnum.V_3, TestEnum.VALUE1)).getEval());
+        final RunaboutInput empty = recursive.toRunaboutGeneric(EnumSet.noneOf(TestEnum.class));
+        Assertions.assertEquals("EnumSet.noneOf(" + enumName + ".class)", empty.getEval());
+        Assertions.assertEquals(Set.of("java.util.EnumSet", enumName), empty.getDependencies());
+    }
+
+    @Test
+    void testEnumConstantWithBody() {
+        final RunaboutInput input = DefaultSerializer.getInstance().toRunaboutGeneric(BodyEnum.VALUE);
+        Assertions.assertEquals(BodyEnum.class.getCanonicalName() + ".VALUE", input.getEval());
+        Assertions.assertEquals(Set.of(BodyEnum.class.getCanonicalName()), input.getDependencies());
+    }
+
+    private enum BodyEnum {
+        VALUE {
+            @Override
+            public String toString() {
+                return "value";
+            }
+        }
+    }
+
     private enum TestEnum {
         VALUE1,
         test2,
         V_3
     }
+
+    @Test
+    void testConcurrentCallsAreIndependent() throws InterruptedException, ExecutionException {
+        final DefaultSerializer defaultSerializer = DefaultSerializer.getInstance();
+        final RunaboutSerializer recursive = new RunaboutSerializer() {
+            @Override
+            public RunaboutInput toRunaboutGeneric(final Object object) {
+                return defaultSerializer.toRunaboutGenericRecursive(object, this);
+            }
+        };
+        final List<Object> shared = List.of(1, "two", new int[]{3, 4});
+        final Map<String, Object> value = new TreeMap<>(Map.of("a", shared, "b", shared, "c", new long[]{5L}));
+        final String expected = recursive.toRunaboutGeneric(value).getEval();
+
+        // Every call is its own pass, so calls racing on other threads see the same result as a single call.
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        if (!expected.equals(recursive.toRunaboutGeneric(value).getEval()) ||
+                                !"new int[]{3, 4}".equals(defaultSerializer.toRunaboutGeneric(new int[]{3, 4})
+                                        .getEval())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                Assertions.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
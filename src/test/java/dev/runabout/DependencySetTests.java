@@ -0,0 +1,41 @@
+package dev.runabout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class DependencySetTests {
+
+    @Test
+    void testInterned() {
+        final DependencySet map = DependencySet.of(HashMap.class);
+        final DependencySet list = DependencySet.of(ArrayList.class);
+        Assertions.assertSame(map, DependencySet.of(HashMap.class));
+        Assertions.assertSame(map, DependencySet.copyOf(Set.of("java.util.HashMap")));
+
+        final DependencySet union = DependencySet.union(map, list);
+        Assertions.assertSame(union, DependencySet.union(list, map));
+        Assertions.assertSame(union, DependencySet.union(union, list));
+        Assertions.assertEquals(Set.of("java.util.HashMap", "java.util.ArrayList"), union);
+        Assertions.assertEquals(union, Set.of("java.util.HashMap", "java.util.ArrayList"));
+        Assertions.assertEquals(Set.of("java.util.HashMap", "java.util.ArrayList").hashCode(), union.hashCode());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> union.add("example.Value"));
+    }
+
+    @Test
+    void testNestedInputsShareDependencies() {
+        final RunaboutService service = RunaboutService.getService("test", null);
+        final Map<String, List<String>> first = Map.of("a", List.of("b"));
+        final Map<String, List<Integer>> second = Map.of("c", List.of(1, 2));
+
+        final Set<String> firstDependencies = service.serialize(first).getDependencies();
+        final Set<String> secondDependencies = service.serialize(second).getDependencies();
+        Assertions.assertEquals(Set.of("java.util.HashMap", "java.util.ArrayList"), firstDependencies);
+        Assertions.assertSame(firstDependencies, secondDependencies);
+    }
+}
@@ -0,0 +1,57 @@
+package dev.runabout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class InFlightLimiterTests {
+
+    @Test
+    void testAdditiveIncreaseMultiplicativeDecrease() {
+        final InFlightLimiter limiter = new InFlightLimiter(2, 3);
+        final long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(limiter.acquire());
+            Assertions.assertTrue(limiter.acquire());
+            limiter.release(start, false);
+            limiter.release(start, false);
+        }
+        Assertions.assertEquals(3, limiter.getLimit());
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(limiter.acquire());
+        }
+        final long sent = System.nanoTime();
+        limiter.release(sent, true);
+        // Requests sent before the decrease don't decrease the limit again.
+        limiter.release(sent, true);
+        limiter.release(start, true);
+        Assertions.assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void testAcquireWaitsForPermit() throws InterruptedException {
+        final InFlightLimiter limiter = new InFlightLimiter(1, 1);
+        Assertions.assertTrue(limiter.acquire());
+
+        final AtomicBoolean acquired = new AtomicBoolean(false);
+        final Thread waiter = new Thread(() -> acquired.set(limiter.acquire()));
+        waiter.setDaemon(true);
+        waiter.start();
+        waiter.join(100);
+        Assertions.assertTrue(waiter.isAlive());
+
+        limiter.cancel();
+        waiter.join(5000);
+        Assertions.assertTrue(acquired.get());
+
+        // An interrupted waiter gives up without a permit.
+        final Thread interrupted = new Thread(() -> acquired.set(limiter.acquire()));
+        interrupted.setDaemon(true);
+        interrupted.start();
+        interrupted.interrupt();
+        interrupted.join(5000);
+        Assertions.assertFalse(acquired.get());
+    }
+}
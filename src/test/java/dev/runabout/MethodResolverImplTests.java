@@ -30,4 +30,28 @@ public class MethodResolverImplTests {
         Assertions.assertEquals("public void dev.runabout.fixtures.CallerClass.callAnonymous(dev.runabout.MethodResolver,java.util.concurrent.atomic.AtomicReference)",
                 signature);
     }
+
+    @Test
+    void testSerializedMethodCached() {
+        final MethodResolverImpl callerSupplier = new MethodResolverImpl(s -> true);
+        final CallerClass caller = new CallerClass();
+        final String serialized = caller.callSerialized(callerSupplier);
+        Assertions.assertEquals("dev.runabout.fixtures.CallerClass#callSerialized(dev.runabout.MethodResolver)",
+                serialized);
+        Assertions.assertSame(serialized, caller.callSerialized(callerSupplier));
+        Assertions.assertEquals("dev.runabout.fixtures.CallerClass#callSerialized(dev.runabout.MethodResolver, int)",
+                caller.callSerialized(callerSupplier, 1));
+    }
+
+    @Test
+    void testMaxFrameDepth() {
+        final AtomicReference<Method> method = new AtomicReference<>();
+        new CallerClass().callLambda(new MethodResolverBuilder().setMaxFrameDepth(16).build(), method);
+        Assertions.assertEquals("callLambda", method.get().getName());
+
+        new CallerClass().callLambda(new MethodResolverBuilder().setMaxFrameDepth(1).build(), method);
+        Assertions.assertNull(method.get());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MethodResolverBuilder().setMaxFrameDepth(0));
+    }
 }
@@ -0,0 +1,59 @@
+package dev.runabout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+public class RetryPolicyTests {
+
+    @Test
+    void testBackoff() {
+        final RetryPolicy policy = new RetryPolicy(2, Duration.ofMillis(100), Duration.ofMillis(300));
+        Assertions.assertTrue(policy.canRetry(1));
+        Assertions.assertFalse(policy.canRetry(2));
+
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.backoffNanos(0, null));
+            assertBetween(100, 200, policy.backoffNanos(1, null));
+            // Capped at the max backoff.
+            assertBetween(150, 300, policy.backoffNanos(5, null));
+        }
+        // A longer Retry-After wins, clamped to the max backoff. The circuit breaker holds the rest of the wait.
+        Assertions.assertEquals(Duration.ofMillis(300).toNanos(), policy.backoffNanos(0, "2"));
+        final RetryPolicy patient = new RetryPolicy(2, Duration.ofMillis(100), Duration.ofSeconds(10));
+        Assertions.assertEquals(Duration.ofSeconds(2).toNanos(), patient.backoffNanos(0, "2"));
+        Assertions.assertEquals(Duration.ofSeconds(10).toNanos(), patient.backoffNanos(0, "10"));
+        Assertions.assertEquals(Duration.ofSeconds(10).toNanos(), patient.backoffNanos(0, "11"));
+    }
+
+    @Test
+    void testRetryable() {
+        Assertions.assertTrue(RetryPolicy.isRetryable(408));
+        Assertions.assertTrue(RetryPolicy.isRetryable(429));
+        Assertions.assertTrue(RetryPolicy.isRetryable(503));
+        Assertions.assertFalse(RetryPolicy.isRetryable(400));
+        Assertions.assertFalse(RetryPolicy.isRetryable(401));
+    }
+
+    @Test
+    void testParseRetryAfter() {
+        final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+        Assertions.assertEquals(Duration.ofSeconds(120).toNanos(), RetryPolicy.parseRetryAfterNanos(" 120 ", now));
+        final String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(now.plusSeconds(30).atZone(ZoneOffset.UTC));
+        Assertions.assertEquals(Duration.ofSeconds(30).toNanos(), RetryPolicy.parseRetryAfterNanos(date, now));
+        Assertions.assertEquals(0, RetryPolicy.parseRetryAfterNanos(
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(now.minusSeconds(30).atZone(ZoneOffset.UTC)), now));
+        Assertions.assertEquals(0, RetryPolicy.parseRetryAfterNanos(null, now));
+        Assertions.assertEquals(0, RetryPolicy.parseRetryAfterNanos("soon", now));
+        Assertions.assertEquals(0, RetryPolicy.parseRetryAfterNanos("99999999999999999999", now));
+    }
+
+    private static void assertBetween(final long minMillis, final long maxMillis, final long nanos) {
+        Assertions.assertTrue(nanos >= Duration.ofMillis(minMillis).toNanos(), "Too short: " + nanos);
+        Assertions.assertTrue(nanos <= Duration.ofMillis(maxMillis).toNanos(), "Too long: " + nanos);
+    }
+}
@@ -0,0 +1,88 @@
+package dev.runabout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RingBufferQueueTests {
+
+    @Test
+    void testBounded() {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<>(3);
+        Assertions.assertEquals(4, queue.capacity());
+        Assertions.assertEquals(1, new RingBufferQueue<>(1).capacity());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RingBufferQueue<>(0));
+
+        Assertions.assertTrue(queue.isEmpty());
+        Assertions.assertNull(queue.poll());
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(queue.offer(i));
+        }
+        Assertions.assertFalse(queue.offer(4));
+        Assertions.assertEquals(4, queue.size());
+        Assertions.assertEquals(List.of(0, 1, 2, 3), new ArrayList<>(queue));
+
+        // Wraps around the ring in order.
+        for (int i = 4; i < 20; i++) {
+            Assertions.assertEquals(i - 4, queue.peek());
+            Assertions.assertEquals(i - 4, queue.poll());
+            Assertions.assertTrue(queue.offer(i));
+        }
+        Assertions.assertEquals(List.of(16, 17, 18, 19), new ArrayList<>(queue));
+        Assertions.assertThrows(NullPointerException.class, () -> queue.offer(null));
+    }
+
+    @Test
+    void testConcurrentProducersAndConsumers() throws InterruptedException {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<>(64);
+        final int producers = 4;
+        final int perProducer = 10_000;
+        final Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        final AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+        final CountDownLatch done = new CountDownLatch(producers + 2);
+
+        for (int p = 0; p < producers; p++) {
+            final int offset = p * perProducer;
+            start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(offset + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }, done);
+        }
+        for (int c = 0; c < 2; c++) {
+            start(() -> {
+                while (remaining.get() > 0) {
+                    final Integer element = queue.poll();
+                    if (element != null) {
+                        Assertions.assertTrue(consumed.add(element));
+                        remaining.decrementAndGet();
+                    }
+                }
+            }, done);
+        }
+
+        done.await();
+        Assertions.assertEquals(producers * perProducer, consumed.size());
+        Assertions.assertTrue(queue.isEmpty());
+    }
+
+    private static void start(final Runnable runnable, final CountDownLatch done) {
+        final Thread thread = new Thread(() -> {
+            try {
+                runnable.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -1,6 +1,7 @@
 package dev.runabout;
 
 import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import org.awaitility.Awaitility;
 import org.bson.Document;
@@ -8,13 +9,24 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -36,8 +48,10 @@ public class RunaboutApiTests {
             },
             port -> {
                 final String url = "http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY;
+                // The executor only runs short tasks for the HTTP client, so even a direct executor works.
                 final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
                         .setUri(URI.create(url))
+                        .setExecutor(Runnable::run)
                         .setListener(error -> failed.set(true))
                         .build();
                 final RunaboutScenario scenario = new RunaboutScenario("method", "event00", "dev",
@@ -72,14 +86,546 @@ public class RunaboutApiTests {
         });
     }
 
+    @Test
+    void testDeduplication() {
+        final ArrayBlockingQueue<RunaboutScenario> queue = new ArrayBlockingQueue<>(10);
+        final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                .setQueue(queue)
+                .setThreadFactory(runnable -> daemon(() -> {}))
+                .setDeduplication(Duration.ofMinutes(1), 10)
+                .build();
+
+        final RunaboutScenario first = new RunaboutScenario("method", "event00", "dev",
+                Instant.now().toString(), null, List.of(new RunaboutInstance("type", "eval", Set.of("dep1", "dep2"))));
+        api.ingestScenario(first);
+        api.ingestScenario(new RunaboutScenario("method", "event01", "dev",
+                Instant.now().toString(), null, List.of(new RunaboutInstance("type", "eval", Set.of("dep2", "dep1")))));
+        api.ingestScenario(new RunaboutScenario("method", "event02", "dev",
+                Instant.now().toString(), null, List.of(new RunaboutInstance("type", "eval", Set.of("dep1", "dep2")))));
+        api.ingestScenario(new RunaboutScenario("method", "event03", "dev",
+                Instant.now().toString(), null, List.of(new RunaboutInstance("type", "other", Set.of("dep1", "dep2")))));
+
+        Assertions.assertEquals(2, queue.size());
+        Assertions.assertSame(first, queue.peek());
+        Assertions.assertEquals(2, first.getRepeatCount());
+        Assertions.assertEquals(2, Document.parse(first.toJsonObject().toJson())
+                .getInteger(RunaboutConstants.REPEAT_COUNT_KEY));
+    }
+
+    @Test
+    void testBatching() {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        withLocalServer(
+            (headers, s) -> {
+                batchSizes.add(Document.parse(s).getList(RunaboutConstants.SCENARIOS_KEY, Document.class).size());
+                return 200;
+            },
+            port -> {
+                final CountDownLatch start = new CountDownLatch(1);
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setThreadFactory(gated(start))
+                        .setBatching(3, 1_000_000, Duration.ZERO)
+                        .build();
+                for (int i = 0; i < 5; i++) {
+                    api.ingestScenario(scenario("event" + i));
+                }
+                start.countDown();
+                awaitBatches(batchSizes, List.of(2, 3));
+
+                // Scenarios that don't fit in the max body size start a new batch.
+                batchSizes.clear();
+                final CountDownLatch smallStart = new CountDownLatch(1);
+                final RunaboutApi smallBodies = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setThreadFactory(gated(smallStart))
+                        .setBatching(10, 10, Duration.ZERO)
+                        .build();
+                for (int i = 0; i < 3; i++) {
+                    smallBodies.ingestScenario(scenario("event" + i));
+                }
+                smallStart.countDown();
+                awaitBatches(batchSizes, List.of(1, 1, 1));
+            });
+    }
+
+    @Test
+    void testAdaptiveBatching() {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        withLocalServer(
+            (headers, s) -> {
+                batchSizes.add(Document.parse(s).getList(RunaboutConstants.SCENARIOS_KEY, Document.class).size());
+                return 200;
+            },
+            port -> {
+                final CountDownLatch start = new CountDownLatch(1);
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setThreadFactory(gated(start))
+                        .setBatching(8, 1_000_000, Duration.ZERO)
+                        .setAdaptiveBatching(true)
+                        .build();
+                for (int i = 0; i < 10; i++) {
+                    api.ingestScenario(scenario("event" + i));
+                }
+                start.countDown();
+                awaitBatches(batchSizes, List.of(1, 2, 3, 4));
+            });
+    }
+
+    @Test
+    void testBatchLinger() {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        withLocalServer(
+            (headers, s) -> {
+                batchSizes.add(Document.parse(s).getList(RunaboutConstants.SCENARIOS_KEY, Document.class).size());
+                return 200;
+            },
+            port -> {
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setBatching(3, 1_000_000, Duration.ofSeconds(5))
+                        .build();
+                final long start = System.nanoTime();
+                for (int i = 0; i < 3; i++) {
+                    api.ingestScenario(scenario("event" + i));
+                }
+                // The batch is sent as soon as it fills, well before the linger time.
+                awaitBatches(batchSizes, List.of(3));
+                Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 4000);
+            });
+    }
+
+    @Test
+    void testDrainersStartedOnce() {
+        final List<Runnable> drainers = new ArrayList<>();
+        final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                .setThreadFactory(runnable -> {
+                    drainers.add(runnable);
+                    return daemon(() -> {});
+                })
+                .setDrainerCount(2)
+                .build();
+        for (int i = 0; i < 5; i++) {
+            api.ingestScenario(scenario("event" + i));
+        }
+        Assertions.assertEquals(2, drainers.size());
+    }
+
+    @Test
+    void testClose() throws InterruptedException {
+        final AtomicInteger errors = new AtomicInteger();
+        final RingBufferQueue<RunaboutScenario> queue = new RingBufferQueue<>(8);
+        final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                .setQueue(queue)
+                .setListener(error -> errors.incrementAndGet())
+                .setThreadFactory(runnable -> daemon(() -> {}))
+                .build();
+        for (int i = 0; i < 3; i++) {
+            api.ingestScenario(scenario("event" + i));
+        }
+        Assertions.assertEquals(3, queue.size());
+
+        // Queued scenarios that no drainer sends, and scenarios ingested after closing, are dropped.
+        api.close();
+        api.ingestScenario(scenario("event3"));
+        Assertions.assertTrue(queue.isEmpty());
+        Assertions.assertEquals(4, api.getDroppedCount());
+        Assertions.assertEquals(2, errors.get());
+
+        // Closing stops drainers that are parked on an empty queue.
+        final List<Thread> drainers = new CopyOnWriteArrayList<>();
+        final RunaboutApi parked = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                .setThreadFactory(runnable -> {
+                    final Thread thread = daemon(runnable);
+                    drainers.add(thread);
+                    return thread;
+                })
+                .setUri(URI.create("http://localhost:1/" + RunaboutConstants.SCENARIOS_KEY))
+                .setRetries(0, Duration.ofMillis(10), Duration.ofMillis(10))
+                .build();
+        parked.ingestScenario(scenario("event0"));
+        parked.close();
+        drainers.get(0).join(10_000);
+        Assertions.assertFalse(drainers.get(0).isAlive());
+    }
+
+    @Test
+    void testOverflowPolicies() {
+        Assertions.assertEquals(List.of("event0", "event1"), overflow(OverflowPolicy.DROP_NEWEST, 3));
+        Assertions.assertEquals(List.of("event1", "event2"), overflow(OverflowPolicy.DROP_OLDEST, 3));
+
+        final long start = System.nanoTime();
+        Assertions.assertEquals(List.of("event0", "event1"), overflow(OverflowPolicy.BLOCK_WITH_TIMEOUT, 3));
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 20);
+
+        // Every scenario past the capacity costs exactly one drop, of itself or of the oldest queued scenario.
+        Assertions.assertEquals(2, overflow(OverflowPolicy.SAMPLE, 1000).size());
+    }
+
+    @Test
+    void testInFlightLimit() {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger requests = new AtomicInteger();
+        withLocalServer(
+            (headers, s) -> {
+                requests.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 200;
+            },
+            port -> {
+                final RingBufferQueue<RunaboutScenario> queue = new RingBufferQueue<>(8);
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setQueue(queue)
+                        .setBatching(1, 1_000_000, Duration.ZERO)
+                        .setMaxInFlightRequests(1)
+                        .build();
+                for (int i = 0; i < 3; i++) {
+                    api.ingestScenario(scenario("event" + i));
+                }
+                // The drainer holds its next batch until the request in flight completes, leaving the rest of the
+                // scenarios queued.
+                Awaitility.await().atMost(Duration.ofSeconds(10))
+                        .pollInterval(Duration.ofMillis(50))
+                        .until(() -> requests.get() == 1 && queue.size() == 1);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                Assertions.assertEquals(1, requests.get());
+                Assertions.assertEquals(1, queue.size());
+
+                release.countDown();
+                Awaitility.await().atMost(Duration.ofSeconds(10))
+                        .pollInterval(Duration.ofMillis(50))
+                        .until(() -> requests.get() == 3);
+                Assertions.assertTrue(queue.isEmpty());
+            });
+    }
+
+    @Test
+    void testTimedOutRequestsLeaveFlight() throws IOException, InterruptedException {
+        // A server that never responds, counting the connections open at once until the client aborts them.
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger maxOpen = new AtomicInteger();
+        try (ServerSocket server = new ServerSocket(0)) {
+            final Thread acceptor = daemon(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        final Socket socket = server.accept();
+                        accepted.incrementAndGet();
+                        maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                        daemon(() -> {
+                            try (socket; InputStream in = socket.getInputStream()) {
+                                while (in.read() != -1) {
+                                    // Read the request and wait for the client to close the connection.
+                                }
+                            } catch (IOException e) {
+                                // The client reset the connection.
+                            } finally {
+                                open.decrementAndGet();
+                            }
+                        }).start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.start();
+
+            final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                    .setUri(URI.create("http://localhost:" + server.getLocalPort() + "/" +
+                            RunaboutConstants.SCENARIOS_KEY))
+                    .setTimeout(200)
+                    .setBatching(1, 1_000_000, Duration.ZERO)
+                    .setMaxInFlightRequests(2)
+                    .setRetries(0, Duration.ofMillis(10), Duration.ofMillis(10))
+                    .setCircuitBreaker(100, Duration.ofMillis(10))
+                    .build();
+            for (int i = 0; i < 6; i++) {
+                api.ingestScenario(scenario("event" + i));
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(10))
+                    .pollInterval(Duration.ofMillis(50))
+                    .until(() -> accepted.get() == 6 && api.getDroppedCount() == 6);
+
+            // Each timed out exchange was aborted before its permit went to the next request.
+            Assertions.assertTrue(maxOpen.get() <= 2, "Open at once: " + maxOpen.get());
+            api.close();
+        }
+    }
+
+    @Test
+    void testRetries() {
+        final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        withLocalServer(
+            (headers, s) -> {
+                idempotencyKeys.add(headers.getFirst("Idempotency-Key"));
+                return idempotencyKeys.size() < 3 ? 503 : 200;
+            },
+            port -> {
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setListener(errors::add)
+                        .setRetries(3, Duration.ofMillis(10), Duration.ofMillis(50))
+                        .build();
+                api.ingestScenario(scenario("event0"));
+                Awaitility.await().atMost(Duration.ofSeconds(10))
+                        .pollInterval(Duration.ofMillis(50))
+                        .until(() -> idempotencyKeys.size() == 3);
+                // Every attempt for the batch carries the same key.
+                Assertions.assertNotNull(idempotencyKeys.get(0));
+                Assertions.assertEquals(1, Set.copyOf(idempotencyKeys).size());
+                Assertions.assertTrue(errors.isEmpty());
+            });
+    }
+
+    @Test
+    void testCircuitBreaker() {
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        withLocalServer(
+            (headers, s) -> {
+                requests.incrementAndGet();
+                return 500;
+            },
+            port -> {
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setListener(error -> errors.incrementAndGet())
+                        .setRetries(0, Duration.ofMillis(10), Duration.ofMillis(10))
+                        .setCircuitBreaker(1, Duration.ofMinutes(1))
+                        .build();
+                api.ingestScenario(scenario("event0"));
+                Awaitility.await().atMost(Duration.ofSeconds(10))
+                        .pollInterval(Duration.ofMillis(50))
+                        .until(() -> errors.get() == 1);
+
+                // The open breaker holds the next batch instead of sending it.
+                api.ingestScenario(scenario("event1"));
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                Assertions.assertEquals(1, requests.get());
+                Assertions.assertEquals(1, errors.get());
+            });
+    }
+
+    @Test
+    void testCloseFlushesQueue() {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        withLocalServer(
+            (headers, s) -> {
+                batchSizes.add(Document.parse(s).getList(RunaboutConstants.SCENARIOS_KEY, Document.class).size());
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 200;
+            },
+            port -> {
+                final AtomicInteger errors = new AtomicInteger();
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setListener(error -> errors.incrementAndGet())
+                        .setBatching(1, 1_000_000, Duration.ofSeconds(10))
+                        .setMaxInFlightRequests(1)
+                        .build();
+                for (int i = 0; i < 5; i++) {
+                    api.ingestScenario(scenario("event" + i));
+                }
+
+                // Closing sends what is queued, and waits for the last request, before it returns.
+                api.close();
+                Assertions.assertEquals(List.of(1, 1, 1, 1, 1), batchSizes);
+                Assertions.assertEquals(0, api.getDroppedCount());
+                Assertions.assertEquals(0, errors.get());
+            });
+    }
+
+    @Test
+    void testRetryHeldByOpenBreaker() {
+        final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        withLocalServer(
+            (headers, s) -> {
+                requestTimes.add(System.nanoTime());
+                return requestTimes.size() == 1 ? 503 : 200;
+            },
+            port -> {
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setListener(errors::add)
+                        .setRetries(3, Duration.ofMillis(10), Duration.ofMillis(10))
+                        .setCircuitBreaker(1, Duration.ofMillis(300))
+                        .build();
+                api.ingestScenario(scenario("event0"));
+                Awaitility.await().atMost(Duration.ofSeconds(10))
+                        .pollInterval(Duration.ofMillis(50))
+                        .until(() -> requestTimes.size() == 2);
+
+                // The failure opened the breaker, which held the retry until it let a trial through.
+                final long heldMillis = Duration.ofNanos(requestTimes.get(1) - requestTimes.get(0)).toMillis();
+                Assertions.assertTrue(heldMillis >= 250, "Retried after " + heldMillis + " ms");
+                Assertions.assertTrue(errors.isEmpty());
+                Assertions.assertEquals(0, api.getDroppedCount());
+                api.close();
+            });
+    }
+
+    @Test
+    void testLongRetryAfterHoldsBatch() {
+        final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        withExchangeServer(
+            (exchange, s) -> {
+                requestTimes.add(System.nanoTime());
+                if (requestTimes.size() == 1) {
+                    exchange.getResponseHeaders().add("Retry-After", "1");
+                    return 429;
+                }
+                return 200;
+            },
+            port -> {
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setListener(errors::add)
+                        .setRetries(3, Duration.ofMillis(10), Duration.ofMillis(50))
+                        .build();
+                api.ingestScenario(scenario("event0"));
+                Awaitility.await().atMost(Duration.ofSeconds(10))
+                        .pollInterval(Duration.ofMillis(50))
+                        .until(() -> requestTimes.size() == 2);
+
+                // Retry-After was past the max backoff, so the breaker held the batch until then.
+                final long heldMillis = Duration.ofNanos(requestTimes.get(1) - requestTimes.get(0)).toMillis();
+                Assertions.assertTrue(heldMillis >= 900, "Retried after " + heldMillis + " ms");
+                Assertions.assertTrue(errors.isEmpty());
+                Assertions.assertEquals(0, api.getDroppedCount());
+                api.close();
+            });
+    }
+
+    @Test
+    void testCloseCancelsPendingRetries() {
+        final AtomicInteger requests = new AtomicInteger();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        withLocalServer(
+            (headers, s) -> {
+                requests.incrementAndGet();
+                return 503;
+            },
+            port -> {
+                final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                        .setUri(URI.create("http://localhost:" + port + "/" + RunaboutConstants.SCENARIOS_KEY))
+                        .setListener(errors::add)
+                        .setRetries(3, Duration.ofSeconds(10), Duration.ofSeconds(10))
+                        .setCircuitBreaker(100, Duration.ofSeconds(1))
+                        .setCloseTimeout(Duration.ZERO)
+                        .build();
+                api.ingestScenario(scenario("event0"));
+                Awaitility.await().atMost(Duration.ofSeconds(10))
+                        .pollInterval(Duration.ofMillis(10))
+                        .until(() -> requests.get() == 1);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                api.close();
+
+                // The batch awaiting its retry is dropped on close, without waiting for its backoff, and never sent.
+                Awaitility.await().atMost(Duration.ofSeconds(2))
+                        .pollInterval(Duration.ofMillis(10))
+                        .until(() -> api.getDroppedCount() == 1);
+                Assertions.assertEquals(1, errors.size());
+                Assertions.assertTrue(errors.get(0).getMessage().contains("awaiting retry"),
+                        errors.get(0).getMessage());
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                Assertions.assertEquals(1, requests.get());
+                Assertions.assertEquals(1, api.getDroppedCount());
+            });
+    }
+
+    private static List<String> overflow(final OverflowPolicy policy, final int count) {
+        final AtomicInteger errors = new AtomicInteger();
+        final RingBufferQueue<RunaboutScenario> queue = new RingBufferQueue<>(2);
+        final RunaboutApi api = new RunaboutApiBuilder(() -> TEST_TOKEN)
+                .setQueue(queue)
+                .setThreadFactory(runnable -> daemon(() -> {}))
+                .setListener(error -> errors.incrementAndGet())
+                .setOverflowPolicy(policy)
+                .setOverflowTimeout(Duration.ofMillis(20))
+                .build();
+        for (int i = 0; i < count; i++) {
+            api.ingestScenario(scenario("event" + i));
+        }
+        Assertions.assertEquals(count - 2, api.getDroppedCount());
+        Assertions.assertEquals(count - 2, errors.get());
+        final List<String> eventIds = new ArrayList<>();
+        for (RunaboutScenario scenario = queue.poll(); scenario != null; scenario = queue.poll()) {
+            eventIds.add(scenario.getEventId());
+        }
+        return eventIds;
+    }
+
+    private static ThreadFactory gated(final CountDownLatch start) {
+        return runnable -> daemon(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            runnable.run();
+        });
+    }
+
+    private static Thread daemon(final Runnable runnable) {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static RunaboutScenario scenario(final String eventId) {
+        return new RunaboutScenario("method", eventId, "dev", Instant.now().toString(), null,
+                List.of(new RunaboutInstance("type", "eval", Set.of("dep1"))));
+    }
+
+    private static void awaitBatches(final List<Integer> batchSizes, final List<Integer> expected) {
+        Awaitility.await().atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(50))
+                .until(() -> batchSizes.size() >= expected.size());
+        final List<Integer> sorted = new ArrayList<>(batchSizes);
+        Collections.sort(sorted);
+        Assertions.assertEquals(expected, sorted);
+    }
+
     private static void withLocalServer(BiFunction<Headers,String,Integer> logic, Consumer<Integer> test) {
+        withExchangeServer((exchange, body) -> logic.apply(exchange.getRequestHeaders(), body), test);
+    }
+
+    private static void withExchangeServer(BiFunction<HttpExchange,String,Integer> logic, Consumer<Integer> test) {
         HttpServer server = null;
         try {
-            server = HttpServer.create(new InetSocketAddress(8085), 0);
+            server = HttpServer.create(new InetSocketAddress(0), 0);
             server.createContext("/" + RunaboutConstants.SCENARIOS_KEY, httpExchange -> {
-                final Headers headers = httpExchange.getRequestHeaders();
                 final String body = new String(httpExchange.getRequestBody().readAllBytes());
-                final int responseCode = logic.apply(headers, body);
+                final int responseCode = logic.apply(httpExchange, body);
                 httpExchange.sendResponseHeaders(responseCode, -1);
             });
             server.start();
@@ -0,0 +1,71 @@
+package dev.runabout;
+
+import dev.runabout.fixtures.CallerClass;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RunaboutCallSiteTests {
+
+    @Test
+    void testFactories() throws NoSuchMethodException {
+        final RunaboutCallSite fromMethod = RunaboutCallSite.of(
+                CallerClass.class.getMethod("callSerialized", MethodResolver.class));
+        Assertions.assertEquals("dev.runabout.fixtures.CallerClass#callSerialized(dev.runabout.MethodResolver)",
+                fromMethod.getSerializedMethod());
+
+        final RunaboutCallSite fromName = RunaboutCallSite.of(CallerClass.class, "callLambda");
+        Assertions.assertEquals("callLambda", fromName.getMethod().getName());
+
+        final RunaboutCallSite fromLookup = RunaboutCallSite.of(MethodHandles.lookup(), "testFactories",
+                MethodType.methodType(void.class));
+        Assertions.assertEquals("dev.runabout.RunaboutCallSiteTests#testFactories()",
+                fromLookup.getSerializedMethod());
+    }
+
+    @Test
+    void testUnresolvable() {
+        // Overloaded and missing methods can't be resolved by name alone.
+        Assertions.assertThrows(RunaboutException.class, () -> RunaboutCallSite.of(CallerClass.class, "callSerialized"));
+        Assertions.assertThrows(RunaboutException.class, () -> RunaboutCallSite.of(CallerClass.class, "missing"));
+        Assertions.assertThrows(RunaboutException.class, () -> RunaboutCallSite.of(MethodHandles.lookup(),
+                "testUnresolvable", MethodType.methodType(int.class)));
+    }
+
+    @Test
+    void testDefaultOverloadsIgnoreCallSite() {
+        // Services written before call sites existed fall back to the overloads without them.
+        final List<String> calls = new ArrayList<>();
+        final RunaboutService service = new RunaboutService() {
+            @Override
+            public RunaboutInput serialize(final Object object) {
+                return DefaultSerializer.getEmptyInput();
+            }
+
+            @Override
+            public RunaboutScenario createScenario(final String eventId, final JsonObject properties,
+                                                   final Object... objects) {
+                calls.add("create " + eventId + " " + objects.length);
+                return null;
+            }
+
+            @Override
+            public void saveScenario(final String eventId, final JsonObject properties, final Object... objects) {
+                calls.add("save " + eventId + " " + objects.length);
+            }
+        };
+
+        final RunaboutCallSite callSite = RunaboutCallSite.of(CallerClass.class, "callLambda");
+        service.createScenario(callSite, "event", null, 1, 2);
+        service.saveScenario(callSite, "event", null, 1);
+        Assertions.assertEquals(List.of("create event 2", "save event 1"), calls);
+
+        // Time budgets are skipped rather than failing at the capture point.
+        Assertions.assertSame(service, service.withTimeout(Duration.ofMillis(5)));
+    }
+}
@@ -0,0 +1,51 @@
+package dev.runabout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class RunaboutInputBuilderTests {
+
+    @Test
+    void testNestedInputs() {
+        final RunaboutInput leaf = RunaboutInput.of("\"leaf\"", Set.of());
+        final RunaboutInput inner = new RunaboutInputBuilder()
+                .append("new Inner(")
+                .append(leaf)
+                .append(")")
+                .addDependency("example.Inner")
+                .build();
+        final RunaboutInput outer = new RunaboutInputBuilder()
+                .append("new Outer(")
+                .append(inner)
+                .append(", ")
+                .append(inner)
+                .append(")")
+                .addDependencies(Set.of("example.Outer"))
+                .build();
+
+        Assertions.assertEquals("new Outer(new Inner(\"leaf\"), new Inner(\"leaf\"))", outer.getEval());
+        Assertions.assertEquals(Set.of("example.Inner", "example.Outer"), outer.getDependencies());
+        Assertions.assertEquals("new Inner(\"leaf\")", inner.getEval());
+        Assertions.assertEquals(outer.getEval().length(), CompositeInput.evalLength(outer));
+    }
+
+    @Test
+    void testDeeplyNestedCollections() {
+        Object nested = "leaf";
+        String expected = "\"leaf\"";
+        for (int i = 0; i < 200; i++) {
+            final List<Object> list = new ArrayList<>();
+            list.add(nested);
+            nested = list;
+            expected = "new ArrayList<>() {{ add(" + expected + "); }}";
+        }
+
+        final RunaboutInput input = RunaboutService.getService("test", null).serialize(nested);
+        Assertions.assertEquals(expected, input.getEval());
+        Assertions.assertEquals(Set.of("java.util.ArrayList"), input.getDependencies());
+    }
+}
@@ -0,0 +1,246 @@
+package dev.runabout;
+
+import dev.runabout.processor.RunaboutProcessor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RunaboutProcessorTests {
+
+    @Test
+    void testGeneratesRunaboutEnabledSerializer() throws Exception {
+        final Compilation compilation = compile("example.Value",
+                "package example;\n" +
+                "import dev.runabout.annotations.RunaboutEnabled;\n" +
+                "import dev.runabout.annotations.RunaboutParameter;\n" +
+                "public class Value {\n" +
+                "    final int number;\n" +
+                "    final String name;\n" +
+                "    @RunaboutEnabled\n" +
+                "    public Value(@RunaboutParameter(\"number\") int number, @RunaboutParameter(\"name\") String name) {\n" +
+                "        this.number = number;\n" +
+                "        this.name = name;\n" +
+                "    }\n" +
+                "}\n");
+
+        Assertions.assertTrue(compilation.errors().isEmpty(), compilation.errors().toString());
+        Assertions.assertTrue(Files.exists(compilation.sources.resolve("example/Value_RunaboutSerializer.java")));
+
+        try (URLClassLoader classLoader = compilation.classLoader()) {
+            final Class<?> clazz = classLoader.loadClass("example.Value");
+            final Object value = clazz.getConstructor(int.class, String.class).newInstance(1, "name");
+            Assertions.assertEquals(SerializationPlan.Strategy.GENERATED, SerializationPlan.forClass(clazz).getStrategy());
+
+            final RunaboutInput input = RunaboutService.getService("test", null).serialize(value);
+            Assertions.assertEquals("new Value((int) 1, \"name\")", input.getEval());
+            Assertions.assertEquals(1, input.getDependencies().size());
+            Assertions.assertTrue(input.getDependencies().contains("example.Value"));
+        }
+    }
+
+    @Test
+    void testGeneratesToRunaboutSerializer() throws Exception {
+        final Compilation compilation = compile("example.Outer",
+                "package example;\n" +
+                "import dev.runabout.RunaboutInput;\n" +
+                "import dev.runabout.annotations.ToRunabout;\n" +
+                "import java.util.Set;\n" +
+                "public class Outer {\n" +
+                "    public static class Inner {\n" +
+                "        @ToRunabout\n" +
+                "        RunaboutInput toRunabout() {\n" +
+                "            return RunaboutInput.of(\"new Outer.Inner()\", Set.of(\"example.Outer.Inner\"));\n" +
+                "        }\n" +
+                "    }\n" +
+                "}\n");
+
+        Assertions.assertTrue(compilation.errors().isEmpty(), compilation.errors().toString());
+
+        try (URLClassLoader classLoader = compilation.classLoader()) {
+            final Class<?> clazz = classLoader.loadClass("example.Outer$Inner");
+            Assertions.assertEquals("example.Outer_N_Inner_RunaboutSerializer",
+                    GeneratedSerializer.getGeneratedClassName(clazz));
+            Assertions.assertEquals(SerializationPlan.Strategy.GENERATED, SerializationPlan.forClass(clazz).getStrategy());
+
+            final RunaboutInput input = RunaboutService.getService("test", null)
+                    .serialize(clazz.getConstructor().newInstance());
+            Assertions.assertEquals("new Outer.Inner()", input.getEval());
+        }
+    }
+
+    @Test
+    void testNestedAndUnderscoreNamesDoNotCollide() throws Exception {
+        final Compilation compilation = compile("example.Outer",
+                "package example;\n" +
+                "import dev.runabout.RunaboutInput;\n" +
+                "import dev.runabout.annotations.ToRunabout;\n" +
+                "import java.util.Set;\n" +
+                "public class Outer {\n" +
+                "    public static class Inner {\n" +
+                "        @ToRunabout\n" +
+                "        RunaboutInput toRunabout() {\n" +
+                "            return RunaboutInput.of(\"new Outer.Inner()\", Set.of(\"example.Outer.Inner\"));\n" +
+                "        }\n" +
+                "    }\n" +
+                "}\n" +
+                "class Outer_Inner {\n" +
+                "    @ToRunabout\n" +
+                "    RunaboutInput toRunabout() {\n" +
+                "        return RunaboutInput.of(\"new Outer_Inner()\", Set.of(\"example.Outer_Inner\"));\n" +
+                "    }\n" +
+                "}\n");
+
+        Assertions.assertTrue(compilation.errors().isEmpty(), compilation.errors().toString());
+        Assertions.assertTrue(Files.exists(compilation.sources.resolve("example/Outer_N_Inner_RunaboutSerializer.java")));
+        Assertions.assertTrue(Files.exists(compilation.sources.resolve("example/Outer__Inner_RunaboutSerializer.java")));
+
+        try (URLClassLoader classLoader = compilation.classLoader()) {
+            final Class<?> nested = classLoader.loadClass("example.Outer$Inner");
+            final Class<?> underscore = classLoader.loadClass("example.Outer_Inner");
+            Assertions.assertEquals("example.Outer__Inner_RunaboutSerializer",
+                    GeneratedSerializer.getGeneratedClassName(underscore));
+            Assertions.assertEquals(SerializationPlan.Strategy.GENERATED, SerializationPlan.forClass(nested).getStrategy());
+            Assertions.assertEquals(SerializationPlan.Strategy.GENERATED,
+                    SerializationPlan.forClass(underscore).getStrategy());
+        }
+    }
+
+    @Test
+    void testPrivateFieldsUseReflection() throws Exception {
+        final Compilation compilation = compile("example.Value",
+                "package example;\n" +
+                "import dev.runabout.annotations.RunaboutEnabled;\n" +
+                "import dev.runabout.annotations.RunaboutParameter;\n" +
+                "public class Value {\n" +
+                "    private final int number;\n" +
+                "    @RunaboutEnabled\n" +
+                "    public Value(@RunaboutParameter(\"number\") int number) {\n" +
+                "        this.number = number;\n" +
+                "    }\n" +
+                "}\n");
+
+        Assertions.assertTrue(compilation.errors().isEmpty(), compilation.errors().toString());
+        Assertions.assertFalse(Files.exists(compilation.sources.resolve("example/Value_RunaboutSerializer.java")));
+    }
+
+    @Test
+    void testUnannotatedParameterIsError() throws Exception {
+        final Compilation compilation = compile("example.Value",
+                "package example;\n" +
+                "import dev.runabout.annotations.RunaboutEnabled;\n" +
+                "import dev.runabout.annotations.RunaboutParameter;\n" +
+                "public class Value {\n" +
+                "    final int number;\n" +
+                "    final String name;\n" +
+                "    @RunaboutEnabled\n" +
+                "    public Value(@RunaboutParameter(\"number\") int number, String name) {\n" +
+                "        this.number = number;\n" +
+                "        this.name = name;\n" +
+                "    }\n" +
+                "}\n");
+
+        Assertions.assertEquals(1, compilation.errors().size());
+        Assertions.assertTrue(compilation.errors().get(0).contains("Parameter: [name] in class: [example.Value]"));
+    }
+
+    @Test
+    void testMissingFieldIsError() throws Exception {
+        final Compilation compilation = compile("example.Value",
+                "package example;\n" +
+                "import dev.runabout.annotations.RunaboutEnabled;\n" +
+                "import dev.runabout.annotations.RunaboutParameter;\n" +
+                "public class Value {\n" +
+                "    final int number;\n" +
+                "    @RunaboutEnabled\n" +
+                "    public Value(@RunaboutParameter(\"count\") int number) {\n" +
+                "        this.number = number;\n" +
+                "    }\n" +
+                "}\n");
+
+        Assertions.assertEquals(1, compilation.errors().size());
+        Assertions.assertTrue(compilation.errors().get(0).contains("RunaboutParameter: [count]"));
+    }
+
+    @Test
+    void testInvalidToRunaboutIsError() throws Exception {
+        final Compilation compilation = compile("example.Value",
+                "package example;\n" +
+                "import dev.runabout.annotations.ToRunabout;\n" +
+                "public class Value {\n" +
+                "    @ToRunabout\n" +
+                "    String toRunabout(int depth) {\n" +
+                "        return null;\n" +
+                "    }\n" +
+                "}\n");
+
+        Assertions.assertEquals(2, compilation.errors().size());
+        Assertions.assertTrue(compilation.errors().get(0).contains("must not take parameters"));
+        Assertions.assertTrue(compilation.errors().get(1).contains("must return dev.runabout.RunaboutInput"));
+    }
+
+    private static Compilation compile(final String className, final String source) throws Exception {
+
+        final Path classes = Files.createTempDirectory("runabout-classes");
+        final Path sources = Files.createTempDirectory("runabout-sources");
+        final String classpath = Paths.get(GeneratedSerializer.class.getProtectionDomain().getCodeSource()
+                .getLocation().toURI()).toString();
+
+        final JavaFileObject file = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+                List.of("-d", classes.toString(), "-s", sources.toString(), "-classpath", classpath),
+                null, List.of(file));
+        task.setProcessors(List.of(new RunaboutProcessor()));
+        task.call();
+
+        return new Compilation(classes, sources, diagnostics.getDiagnostics());
+    }
+
+    private static class Compilation {
+
+        private final Path classes;
+        private final Path sources;
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        private Compilation(Path classes, Path sources, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+            this.classes = classes;
+            this.sources = sources;
+            this.diagnostics = diagnostics;
+        }
+
+        private List<String> errors() {
+            return diagnostics.stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .map(d -> d.getMessage(null))
+                    .collect(Collectors.toList());
+        }
+
+        private URLClassLoader classLoader() throws IOException {
+            return new URLClassLoader(new URL[]{classes.toUri().toURL()},
+                    RunaboutProcessorTests.class.getClassLoader());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package dev.runabout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SamplingPolicyTests {
+
+    @Test
+    void testProbabilistic() {
+        Assertions.assertTrue(SamplingPolicy.probabilistic(1).sample());
+        Assertions.assertFalse(SamplingPolicy.probabilistic(0).sample());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.probabilistic(1.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.probabilistic(Double.NaN));
+    }
+
+    @Test
+    void testRateLimited() {
+        final SamplingPolicy policy = SamplingPolicy.rateLimited(0.001, 3);
+        Assertions.assertTrue(policy.sample());
+        Assertions.assertTrue(policy.sample());
+        Assertions.assertTrue(policy.sample());
+        Assertions.assertFalse(policy.sample());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.rateLimited(0, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.rateLimited(1, 0));
+    }
+
+    @Test
+    void testFirstPerWindow() throws InterruptedException {
+        final SamplingPolicy policy = SamplingPolicy.firstPerWindow(2, Duration.ofMillis(50));
+        Assertions.assertTrue(policy.sample());
+        Assertions.assertTrue(policy.sample());
+        Assertions.assertFalse(policy.sample());
+
+        Thread.sleep(60);
+        Assertions.assertTrue(policy.sample());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.firstPerWindow(1, Duration.ZERO));
+    }
+
+    @Test
+    void testUnsampledCallDoesNoWork() {
+        final AtomicInteger resolved = new AtomicInteger();
+        final RunaboutService runaboutService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setMethodResolver(() -> {
+                    resolved.incrementAndGet();
+                    throw new IllegalStateException("Method should not be resolved.");
+                })
+                .setSamplingPolicy(() -> false)
+                .build();
+
+        runaboutService.saveScenario(null, null, "value");
+        Assertions.assertEquals(0, resolved.get());
+    }
+}
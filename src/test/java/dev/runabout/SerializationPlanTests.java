@@ -0,0 +1,94 @@
+package dev.runabout;
+
+import dev.runabout.fixtures.ConcreteClass1;
+import dev.runabout.fixtures.EnabledClass;
+import dev.runabout.fixtures.EnabledImproperClass;
+import dev.runabout.fixtures.EnabledReorderedClass;
+import dev.runabout.fixtures.UnknownClass1;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class SerializationPlanTests {
+
+    @Test
+    void testPlanIsCached() {
+        final SerializationPlan plan = SerializationPlan.forClass(EnabledClass.class);
+        Assertions.assertSame(plan, SerializationPlan.forClass(EnabledClass.class));
+    }
+
+    @Test
+    void testRunaboutEnabledPlan() {
+        final SerializationPlan plan = SerializationPlan.forClass(EnabledClass.class);
+        Assertions.assertEquals(SerializationPlan.Strategy.RUNABOUT_ENABLED, plan.getStrategy());
+        Assertions.assertEquals(EnabledClass.class.getCanonicalName(), plan.getTypeName());
+        Assertions.assertEquals(List.of("number", "name", "flag", "list"), fieldNames(plan));
+        Assertions.assertNull(plan.getError());
+    }
+
+    @Test
+    void testRunaboutEnabledPlanOrderedByParameter() {
+        final SerializationPlan plan = SerializationPlan.forClass(EnabledReorderedClass.class);
+        Assertions.assertEquals(SerializationPlan.Strategy.RUNABOUT_ENABLED, plan.getStrategy());
+        Assertions.assertEquals(List.of("number", "name"), fieldNames(plan));
+
+        final RunaboutInput input = RunaboutService.getService("test", null)
+                .serialize(new EnabledReorderedClass(1, "name"));
+        Assertions.assertEquals("new EnabledReorderedClass((int) 1, \"name\")", input.getEval());
+    }
+
+    @Test
+    void testToRunaboutPlanFromSuperclass() {
+        final SerializationPlan plan = SerializationPlan.forClass(ConcreteClass1.class);
+        Assertions.assertEquals(SerializationPlan.Strategy.TO_RUNABOUT, plan.getStrategy());
+        Assertions.assertEquals("toRunabout", plan.getMethod().getName());
+        Assertions.assertEquals(ConcreteClass1.class.getCanonicalName(), plan.getTypeName());
+    }
+
+    @Test
+    void testImproperPlanFallsBack() {
+        final SerializationPlan plan = SerializationPlan.forClass(EnabledImproperClass.class);
+        Assertions.assertEquals(SerializationPlan.Strategy.TO_RUNABOUT, plan.getStrategy());
+        Assertions.assertNotNull(plan.getError());
+    }
+
+    @Test
+    void testNoInstanceSerializer() {
+        final SerializationPlan plan = SerializationPlan.forClass(UnknownClass1.class);
+        Assertions.assertEquals(SerializationPlan.Strategy.NONE, plan.getStrategy());
+        Assertions.assertNull(plan.getFields());
+        Assertions.assertNull(plan.getMethod());
+        Assertions.assertEquals(Set.of(UnknownClass1.class.getCanonicalName()), plan.getDependencies());
+    }
+
+    @Test
+    void testJdkClassesHaveNoInstanceSerializer() {
+        for (final Class<?> clazz : List.of(String.class, Integer.class, HashMap.class, ArrayList.class, int[].class)) {
+            final SerializationPlan plan = SerializationPlan.forClass(clazz);
+            Assertions.assertEquals(SerializationPlan.Strategy.NONE, plan.getStrategy());
+            Assertions.assertNull(plan.getError());
+            Assertions.assertSame(plan, SerializationPlan.forClass(clazz));
+        }
+    }
+
+    @Test
+    void testJdkSuperclassWithoutInstanceSerializer() {
+        final Map<String, String> map = new HashMap<>() {{
+            put("key", "value");
+        }};
+        final SerializationPlan plan = SerializationPlan.forClass(map.getClass());
+        Assertions.assertEquals(SerializationPlan.Strategy.NONE, plan.getStrategy());
+        Assertions.assertEquals(HashMap.class.getCanonicalName(), plan.getTypeName());
+    }
+
+    private static List<String> fieldNames(final SerializationPlan plan) {
+        return plan.getFields().stream().map(Field::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,34 @@
+package dev.runabout;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class StringEscaperTests {
+
+    @Test
+    void testNoEscapesReturnsInput() {
+        final String plain = "plain string with unicode \u00e9 and \uD83D\uDE00";
+        Assertions.assertSame(plain, StringEscaper.escapeJava(plain));
+        Assertions.assertSame(plain, StringEscaper.escapeJson(plain));
+        Assertions.assertEquals("x" + plain, StringEscaper.escapeJava(plain, new StringBuilder("x")).toString());
+    }
+
+    @Test
+    void testEscapeJava() {
+        Assertions.assertEquals("a\\\\b \\\"c\\\" \\n\\t\\r\\b\\f", StringEscaper.escapeJava("a\\b \"c\" \n\t\r\b\f"));
+        // Octal escapes are three digits, so a digit that follows is not absorbed into them.
+        Assertions.assertEquals("\\0001\\037\\177", StringEscaper.escapeJava("\u00001\u001f\u007f"));
+        Assertions.assertEquals("\\ud800 \\udc00", StringEscaper.escapeJava("\uD800 \uDC00"));
+        Assertions.assertEquals("\uD83D\uDE00\\ud83d", StringEscaper.escapeJava("\uD83D\uDE00\uD83D"));
+    }
+
+    @Test
+    void testEscapeJson() {
+        Assertions.assertEquals("a\\\\b \\\"c\\\" \\n\\u0000\u007f", StringEscaper.escapeJson("a\\b \"c\" \n\u0000\u007f"));
+
+        final String value = "quote \" backslash \\ newline \n control \u0001 pair \uD83D\uDE00";
+        final String json = "{\"key\":\"" + StringEscaper.escapeJson(value) + "\"}";
+        Assertions.assertEquals(value, Document.parse(json).getString("key"));
+    }
+}
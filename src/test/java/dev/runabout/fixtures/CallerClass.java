@@ -23,4 +23,12 @@ public class CallerClass {
             }
         }.run();
     }
+
+    public String callSerialized(MethodResolver callerSupplier) {
+        return callerSupplier.getSerializedMethod();
+    }
+
+    public String callSerialized(MethodResolver callerSupplier, final int overload) {
+        return callerSupplier.getSerializedMethod();
+    }
 }
@@ -0,0 +1,22 @@
+package dev.runabout.fixtures;
+
+import dev.runabout.RunaboutInput;
+import dev.runabout.annotations.ToRunabout;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CountingClass {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    public int getCount() {
+        return count.get();
+    }
+
+    @ToRunabout
+    RunaboutInput toRunabout() {
+        count.incrementAndGet();
+        return RunaboutInput.of("new CountingClass()", Set.of(CountingClass.class.getCanonicalName()));
+    }
+}
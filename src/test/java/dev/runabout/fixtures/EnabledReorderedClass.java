@@ -0,0 +1,17 @@
+package dev.runabout.fixtures;
+
+import dev.runabout.annotations.RunaboutEnabled;
+import dev.runabout.annotations.RunaboutParameter;
+
+public class EnabledReorderedClass {
+
+    private final String name;
+    private final int number;
+
+    @RunaboutEnabled
+    public EnabledReorderedClass(@RunaboutParameter("number") int number,
+                                 @RunaboutParameter("name") String name) {
+        this.number = number;
+        this.name = name;
+    }
+}
@@ -2,12 +2,18 @@ package dev.runabout.packagetests;
 
 import dev.runabout.JsonObject;
 import dev.runabout.RunaboutApiBuilder;
+import dev.runabout.RunaboutCallSite;
+import dev.runabout.RunaboutException;
 import dev.runabout.RunaboutInput;
+import dev.runabout.RunaboutInputBuilder;
+import dev.runabout.RunaboutScenario;
 import dev.runabout.RunaboutService;
 import dev.runabout.RunaboutServiceBuilder;
+import dev.runabout.RunaboutTimeoutException;
 import dev.runabout.annotations.ToRunabout;
 import dev.runabout.fixtures.ConcreteClass1;
 import dev.runabout.fixtures.ConcreteClass2;
+import dev.runabout.fixtures.CountingClass;
 import dev.runabout.fixtures.Logic1;
 import dev.runabout.fixtures.SupplierWrapper;
 import dev.runabout.fixtures.ThrowsClass1;
@@ -18,14 +24,20 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 public class RunaboutServiceImplTests {
 
@@ -113,6 +125,64 @@ public class RunaboutServiceImplTests {
         Assertions.assertTrue(input.get("dependencies", List.class).isEmpty());
     }
 
+    @Test
+    void testTypedSerializers() {
+        final RunaboutService runaboutService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .registerSerializer(UnknownClass1.class, (value, serializer) -> new RunaboutInputBuilder()
+                        .append("new UnknownClass1(")
+                        .append(serializer.toRunaboutGeneric(value.getField1()))
+                        .append(", ")
+                        .append(serializer.toRunaboutGeneric(value.getField2()))
+                        .append(")")
+                        .addDependency(UnknownClass1.class.getCanonicalName())
+                        .build())
+                .registerSerializer(CharSequence.class, (value, serializer) -> value instanceof StringBuilder ?
+                        RunaboutInput.of("new StringBuilder(\"" + value + "\")", Set.of()) : null)
+                .setCustomSerializer(o -> o instanceof StringBuffer ?
+                        RunaboutInput.of("new StringBuffer()", Set.of()) : null)
+                .build();
+
+        final RunaboutInput input = runaboutService.serialize(List.of(new UnknownClass1("a", "b")));
+        Assertions.assertEquals("new ArrayList<>() {{ add(new UnknownClass1(\"a\", \"b\")); }}", input.getEval());
+        Assertions.assertTrue(input.getDependencies().contains(UnknownClass1.class.getCanonicalName()));
+
+        // Subtypes use the serializer of their supertype, and fall back to the custom serializer when it returns null.
+        Assertions.assertEquals("new StringBuilder(\"sb\")",
+                runaboutService.serialize(new StringBuilder("sb")).getEval());
+        Assertions.assertEquals("new StringBuffer()", runaboutService.serialize(new StringBuffer("sb")).getEval());
+        Assertions.assertEquals("\"string\"", runaboutService.serialize("string").getEval());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RunaboutServiceBuilder("test")
+                .registerSerializer(String.class, (value, serializer) -> null)
+                .registerSerializer(String.class, (value, serializer) -> null));
+    }
+
+    @Test
+    void testHomogeneousCollections() {
+        final RunaboutService runaboutService = RunaboutService.getService("test", null);
+
+        Assertions.assertEquals("new ArrayList<>() {{ add((long) 1); add((long) 2); add(\"a\"); add(null); " +
+                "add((long) 3); }}", runaboutService.serialize(Arrays.asList(1L, 2L, "a", null, 3L)).getEval());
+        Assertions.assertEquals("new HashMap<>() {{ put(\"key\", (int) 1); }}",
+                runaboutService.serialize(Map.of("key", 1)).getEval());
+
+        // Leaf elements still go through typed and custom serializers when they are set.
+        final RunaboutService typedService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .registerSerializer(Long.class, (value, serializer) -> RunaboutInput.of(value + "L", Set.of()))
+                .build();
+        Assertions.assertEquals("new ArrayList<>() {{ add(1L); add(2L); }}",
+                typedService.serialize(List.of(1L, 2L)).getEval());
+
+        final RunaboutService customService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setCustomSerializer(o -> o instanceof String ? RunaboutInput.of("S", Set.of()) : null)
+                .build();
+        Assertions.assertEquals("new ArrayList<>() {{ add(S); add(S); }}",
+                customService.serialize(List.of("a", "b")).getEval());
+    }
+
     @Test
     void testInstanceSerializerThrows() {
         final List<Throwable> thrown = new ArrayList<>();
@@ -173,6 +243,218 @@ public class RunaboutServiceImplTests {
         assertJsonString(inputs.get(2), ConcreteClass2.class, "new ConcreteClass2(", Set.of(ConcreteClass2.class, HashMap.class));
     }
 
+    @Test
+    void testSharedObjectSerializedOnce() {
+        final CountingClass shared = new CountingClass();
+        final RunaboutService runaboutService = RunaboutService.getService("test", null);
+        final JsonObject jsonObject = runaboutService.createScenario(null, null,
+                List.of(shared, shared), Map.of("key", shared), shared).toJsonObject();
+
+        Assertions.assertEquals(1, shared.getCount());
+
+        final Document document = Document.parse(jsonObject.toJson());
+        final List<Document> inputs = document.getList("instances", Document.class);
+        Assertions.assertEquals(3, inputs.size());
+        Assertions.assertEquals("new ArrayList<>() {{ add(new CountingClass()); add(new CountingClass()); }}",
+                inputs.get(0).getString("eval"));
+        Assertions.assertEquals("new HashMap<>() {{ put(\"key\", new CountingClass()); }}",
+                inputs.get(1).getString("eval"));
+        Assertions.assertEquals("new CountingClass()", inputs.get(2).getString("eval"));
+    }
+
+    @Test
+    void testCyclicObjectGraph() {
+        final List<Throwable> thrown = new ArrayList<>();
+        final RunaboutService runaboutService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setListener(thrown::add)
+                .build();
+        final List<Object> list = new ArrayList<>();
+        list.add("value");
+        list.add(list);
+
+        // The back reference is replaced, and the rest of the list survives.
+        final RunaboutInput runaboutInput = runaboutService.serialize(list);
+        Assertions.assertEquals("new ArrayList<>() {{ add(\"value\"); add(null /* cycle detected by Runabout */); }}",
+                runaboutInput.getEval());
+        Assertions.assertEquals(Set.of("java.util.ArrayList"), runaboutInput.getDependencies());
+        Assertions.assertEquals(1, thrown.size());
+        Assertions.assertTrue(thrown.get(0) instanceof RunaboutException);
+    }
+
+    @Test
+    void testSharedObjectRespectsLimits() {
+        final RunaboutService depthLimited = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setMaxDepth(2)
+                .build();
+        final List<String> shared = new ArrayList<>(List.of("a"));
+        Assertions.assertEquals("new ArrayList<>() {{ add(new ArrayList<>() {{ add(\"a\"); }}); " +
+                "add(new ArrayList<>() {{ add(null /* truncated by Runabout */); }}); }}",
+                depthLimited.serialize(List.of(shared, List.of(shared))).getEval());
+
+        // An input truncated by the budget of one instance is serialized again for the next.
+        final RunaboutService budgetLimited = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setMaxInstanceEvalLength(40)
+                .build();
+        final String padding = "p".repeat(20);
+        final List<String> values = new ArrayList<>(List.of("x".repeat(30), "y".repeat(30), "z".repeat(30)));
+        final Document document = Document.parse(budgetLimited
+                .createScenario(null, null, List.of(padding, values), values).toJsonObject().toJson());
+        final List<Document> inputs = document.getList("instances", Document.class);
+        Assertions.assertTrue(inputs.get(0).getString("eval").contains("/* 2 more truncated by Runabout */"));
+        Assertions.assertTrue(inputs.get(1).getString("eval").contains("/* 1 more truncated by Runabout */"));
+    }
+
+    @Test
+    void testMaxDepth() {
+        final RunaboutService runaboutService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setMaxDepth(2)
+                .build();
+        final RunaboutInput runaboutInput = runaboutService.serialize(List.of(List.of(List.of("a")), "b"));
+        Assertions.assertEquals("new ArrayList<>() {{ add(new ArrayList<>() {{ add(null /* truncated by Runabout */); }}); " +
+                "add(\"b\"); }}", runaboutInput.getEval());
+    }
+
+    @Test
+    void testMaxEvalLength() {
+        final RunaboutService runaboutService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setMaxInstanceEvalLength(20)
+                .setMaxScenarioEvalLength(25)
+                .build();
+
+        final List<String> list = Collections.nCopies(1000, "abcdef");
+        final RunaboutInput runaboutInput = runaboutService.serialize(list);
+        Assertions.assertEquals("new ArrayList<>() {{ add(\"abcdef\"); add(\"abcdef\"); add(\"abcdef\"); " +
+                "/* 997 more truncated by Runabout */ }}", runaboutInput.getEval());
+
+        final Document document = Document.parse(runaboutService
+                .createScenario(null, null, "first value", "second value", "third value").toJsonObject().toJson());
+        final List<Document> inputs = document.getList("instances", Document.class);
+        Assertions.assertEquals("\"first value\"", inputs.get(0).getString("eval"));
+        Assertions.assertEquals("\"second value\"", inputs.get(1).getString("eval"));
+        Assertions.assertEquals("null /* truncated by Runabout */", inputs.get(2).getString("eval"));
+    }
+
+    @Test
+    void testScenarioTimeout() {
+        final List<Throwable> thrown = new ArrayList<>();
+        final RunaboutService runaboutService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                .setListener(thrown::add)
+                .setCustomSerializer(o -> {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return RunaboutInput.of("\"slow\"", Set.of());
+                })
+                .setScenarioTimeout(Duration.ofMillis(5))
+                .build();
+        final List<String> list = Collections.nCopies(100, "slow");
+
+        final long start = System.nanoTime();
+        Assertions.assertThrows(RunaboutTimeoutException.class,
+                () -> runaboutService.createScenario(null, null, list, list));
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 500);
+
+        runaboutService.saveScenario(null, null, list);
+        Assertions.assertEquals(1, thrown.size());
+        Assertions.assertTrue(thrown.get(0) instanceof RunaboutTimeoutException);
+
+        final Document document = Document.parse(runaboutService.withTimeout(Duration.ofMinutes(1))
+                .createScenario(null, null, "slow").toJsonObject().toJson());
+        Assertions.assertEquals("\"slow\"", document.getList("instances", Document.class).get(0).getString("eval"));
+
+        Assertions.assertThrows(RunaboutTimeoutException.class, () -> runaboutService.withTimeout(Duration.ofMinutes(1))
+                .withTimeout(Duration.ofMillis(5)).createScenario(null, null, list));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> runaboutService.withTimeout(Duration.ZERO));
+    }
+
+    @Test
+    void testCallSite() {
+        final List<RunaboutScenario> saved = new ArrayList<>();
+        final RunaboutService runaboutService = new RunaboutServiceBuilder("test")
+                .setRunaboutApi(saved::add)
+                .setMethodResolver(() -> {
+                    throw new IllegalStateException("The method resolver should not be used.");
+                })
+                .build();
+        final RunaboutCallSite callSite = RunaboutCallSite.of(MethodHandles.lookup(), "testCallSite",
+                MethodType.methodType(void.class));
+
+        final RunaboutScenario scenario = runaboutService.createScenario(callSite, null, null, "value");
+        Assertions.assertEquals(callSite.getSerializedMethod(), scenario.getMethod());
+
+        runaboutService.saveScenario(callSite, "event", null, "value");
+        Assertions.assertEquals(1, saved.size());
+        Assertions.assertEquals(callSite.getSerializedMethod(), saved.get(0).getMethod());
+    }
+
+    @Test
+    void testParallelSerialization() {
+        final RunaboutService sequential = RunaboutService.getService("test", null);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final RunaboutService parallel = new RunaboutServiceBuilder("test")
+                    .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                    .setForkJoinPool(pool)
+                    .setParallelThreshold(10)
+                    .build();
+
+            final List<Object> list = new ArrayList<>();
+            final Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < 100; i++) {
+                list.add(i % 3 == 0 ? "value" + i : List.of(i, (long) i));
+                map.put("key" + i, i);
+            }
+            Assertions.assertEquals(sequential.serialize(list).getEval(), parallel.serialize(list).getEval());
+            Assertions.assertEquals(sequential.serialize(map).getEval(), parallel.serialize(map).getEval());
+
+            final Document expected = Document.parse(sequential.createScenario(null, null, list, map, "value")
+                    .toJsonObject().toJson());
+            final Document actual = Document.parse(parallel.createScenario(null, null, list, map, "value")
+                    .toJsonObject().toJson());
+            Assertions.assertEquals(expected.get("instances"), actual.get("instances"));
+
+            // Null and unserializable elements give the same result either way.
+            final List<Object> withNulls = new ArrayList<>(list);
+            withNulls.set(0, null);
+            withNulls.set(50, null);
+            final Map<String, Object> mapWithNulls = new LinkedHashMap<>(map);
+            mapWithNulls.put("key0", null);
+            Assertions.assertEquals(sequential.serialize(withNulls).getEval(), parallel.serialize(withNulls).getEval());
+            Assertions.assertTrue(parallel.serialize(withNulls).getEval().startsWith("new ArrayList<>() {{ add(null); "));
+            Assertions.assertEquals(sequential.serialize(mapWithNulls).getEval(),
+                    parallel.serialize(mapWithNulls).getEval());
+            final List<Object> unserializable = new ArrayList<>(withNulls);
+            unserializable.set(70, new Object());
+            Assertions.assertEquals(sequential.serialize(unserializable).getEval(),
+                    parallel.serialize(unserializable).getEval());
+
+            // Budgets and cycle detection still apply across the parallel parts.
+            final RunaboutService truncating = new RunaboutServiceBuilder("test")
+                    .setRunaboutApi(new RunaboutApiBuilder(null).build())
+                    .setForkJoinPool(pool)
+                    .setParallelThreshold(10)
+                    .setMaxElements(20)
+                    .build();
+            Assertions.assertTrue(truncating.serialize(list).getEval()
+                    .endsWith("/* 80 more truncated by Runabout */ }}"));
+
+            final List<Object> cyclic = new ArrayList<>(Collections.nCopies(20, "value"));
+            cyclic.add(cyclic);
+            Assertions.assertTrue(parallel.serialize(cyclic).getEval()
+                    .endsWith("add(\"value\"); add(null /* cycle detected by Runabout */); }}"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     //
     // Tests anonymous implementations of both classes and interfaces.
     //